@@ -0,0 +1,52 @@
+package de.lefti.schedule;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from scheduling a task due immediately until it starts running, with a number of other tasks
+ * waiting in the engine.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+	@Param({"0", "100000"})
+	public int waitingTasks;
+
+	@Param({"PRIORITY_QUEUE", "TIMING_WHEEL"})
+	public Engine engine;
+
+	private Scheduler scheduler;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		scheduler = new Scheduler("Benchmark").useEngine(engine);
+		List<Schedule> schedules = new ArrayList<>(waitingTasks);
+		for (int i = 0; i < waitingTasks; i++) {
+			schedules.add(scheduler.every(2 + i % 1000).hours().task(() -> { }));
+		}
+		scheduler.runAll(schedules);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	@Benchmark
+	public void dispatch() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		Schedule schedule = scheduler.every().hour().run(started::countDown);
+		started.await();
+		schedule.cancel();
+	}
+}
@@ -0,0 +1,114 @@
+package de.lefti.schedule;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the calculation of the next execution of a repeated task per kind of task. The clock is fixed, so that the
+ * calculation is measured instead of reading the system clock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NextExecutionBenchmark {
+
+	@Param({"SECONDS", "MINUTES", "MINUTES_AT", "HOURS", "HOURS_AT", "DAYS", "DAYS_AT", "WEEKS_AT", "MONTHS_AT",
+			"YEARS_AT", "CRON"})
+	public String kind;
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	// not aligned to any unit on purpose
+	private static final long NOW = Instant.parse("2024-03-27T13:47:21.317Z").toEpochMilli();
+	private static final int PREVIOUS_EXECUTIONS = 1024;
+
+	private Schedule schedule;
+	// previous executions spread over a year, none of them aligned to the unit of the task
+	private final long[] previous = new long[PREVIOUS_EXECUTIONS];
+	private int index;
+
+	@Setup
+	public void setUp() {
+		Scheduler scheduler = new Scheduler("Benchmark").useClock(Clock.fixed(Instant.ofEpochMilli(NOW), BERLIN));
+		if (kind.equals("CRON")) {
+			schedule = scheduler.cron("*/15 8-18 * * MON-FRI");
+		} else {
+			ChronoUnit unit = ChronoUnit.valueOf(kind.endsWith("_AT") ? kind.substring(0, kind.length() - 3) : kind);
+			schedule = every(scheduler, unit);
+			if (kind.endsWith("_AT")) {
+				schedule.at(at(unit));
+			}
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < PREVIOUS_EXECUTIONS; i++) {
+			previous[i] = NOW - Math.floorMod(random.nextLong(), TimeUnit.DAYS.toMillis(365));
+		}
+	}
+
+	@Benchmark
+	public long first() {
+		return schedule.nextExecutionTimestamp(0);
+	}
+
+	@Benchmark
+	public long repeated() {
+		return schedule.nextExecutionTimestamp(nextPrevious());
+	}
+
+	/**
+	 * Skips all executions missed since the previous one, as after the scheduler has been stalled.
+	 */
+	@Benchmark
+	public long afterMissed() {
+		schedule._nextExecution = nextPrevious();
+		return schedule.nextExecutionTimestampAfter(NOW);
+	}
+
+	private long nextPrevious() {
+		index = (index + 1) & (PREVIOUS_EXECUTIONS - 1);
+		return previous[index];
+	}
+
+	private static Schedule every(Scheduler scheduler, ChronoUnit unit) {
+		switch (unit) {
+			case SECONDS:
+				return scheduler.every().second();
+			case MINUTES:
+				return scheduler.every().minute();
+			case HOURS:
+				return scheduler.every().hour();
+			case DAYS:
+				return scheduler.every().day();
+			case WEEKS:
+				return scheduler.every().monday();
+			case MONTHS:
+				return scheduler.every().month();
+			default:
+				return scheduler.every().year();
+		}
+	}
+
+	private static String at(ChronoUnit unit) {
+		switch (unit) {
+			case MINUTES:
+				return ":30";
+			case HOURS:
+				return "15:30";
+			case DAYS:
+			case WEEKS:
+				return "08:15:30";
+			case MONTHS:
+				return "-15 08:15";
+			default:
+				return "04-15 08:15";
+		}
+	}
+}
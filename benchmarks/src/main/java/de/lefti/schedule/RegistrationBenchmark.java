@@ -0,0 +1,73 @@
+package de.lefti.schedule;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to schedule a number of tasks, one by one and all at once. The tasks are due far in the
+ * future, so the scheduler thread only has to add them to its engine.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+	private static final Runnable TASK = () -> { };
+
+	@Param({"1000", "100000", "1000000"})
+	public int tasks;
+
+	@Param({"PRIORITY_QUEUE", "TIMING_WHEEL"})
+	public Engine engine;
+
+	private Scheduler scheduler;
+
+	@Setup(Level.Invocation)
+	public void setUp() {
+		scheduler = new Scheduler("Benchmark").useEngine(engine);
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	@Benchmark
+	public Scheduler runOneByOne() throws InterruptedException {
+		TimeSpec time = TimeSpec.parse("08:00");
+		for (int i = 0; i < tasks; i++) {
+			scheduler.every().day().at(time).run(TASK);
+		}
+		awaitRegistered();
+		return scheduler;
+	}
+
+	@Benchmark
+	public Scheduler runAll() throws InterruptedException {
+		TimeSpec time = TimeSpec.parse("08:00");
+		List<Schedule> schedules = new ArrayList<>(tasks);
+		for (int i = 0; i < tasks; i++) {
+			schedules.add(scheduler.every().day().at(time).task(TASK));
+		}
+		scheduler.runAll(schedules);
+		awaitRegistered();
+		return scheduler;
+	}
+
+	/**
+	 * Tasks are added to the engine by the scheduler thread in order of registration, so all of them have been added
+	 * as soon as a task scheduled afterwards is running.
+	 */
+	private void awaitRegistered() throws InterruptedException {
+		CountDownLatch added = new CountDownLatch(1);
+		scheduler.every().hour().run(added::countDown);
+		added.await();
+	}
+}
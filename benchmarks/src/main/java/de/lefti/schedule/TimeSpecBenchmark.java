@@ -0,0 +1,50 @@
+package de.lefti.schedule;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the timestamps passed to {@link Schedule#at(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimeSpecBenchmark {
+
+	@Param({":30", "08:30", "08:30:15", "-01", "04-01 08:30:15"})
+	public String timestamp;
+
+	private final Scheduler scheduler = new Scheduler("Benchmark");
+	private TimeSpec time;
+
+	@Setup
+	public void setUp() {
+		time = TimeSpec.parse(timestamp);
+	}
+
+	@Benchmark
+	public TimeSpec parse() {
+		return TimeSpec.parse(timestamp);
+	}
+
+	@Benchmark
+	public Schedule at() {
+		return schedule().at(timestamp);
+	}
+
+	@Benchmark
+	public Schedule atParsed() {
+		return schedule().at(time);
+	}
+
+	private Schedule schedule() {
+		if (timestamp.length() == 3) {
+			return scheduler.every().hour();
+		}
+		return timestamp.indexOf('-') < 0 ? scheduler.every().day() : scheduler.every().year();
+	}
+}
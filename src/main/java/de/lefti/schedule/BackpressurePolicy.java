@@ -0,0 +1,17 @@
+package de.lefti.schedule;
+
+/**
+ * Policies for ticks published while a subscriber has not requested any, see {@link TickPublisher}.
+ */
+public enum BackpressurePolicy {
+
+	/**
+	 * Drops ticks while the subscriber has not requested any.
+	 */
+	DROP,
+
+	/**
+	 * Keeps only the latest tick while the subscriber has not requested any, it is delivered with the next request.
+	 */
+	CONFLATE
+}
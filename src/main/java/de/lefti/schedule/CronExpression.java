@@ -0,0 +1,349 @@
+package de.lefti.schedule;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+/**
+ * Parsed cron expression for {@link Scheduler#cron(CronExpression)}. Each field is compiled into a bitset of the
+ * matching values, the next execution is found by jumping from field to field to the next set bit, instead of stepping
+ * through the calendar.
+ * <p>
+ * Expressions have five fields "minute hour day-of-month month day-of-week", or six fields with a leading second.
+ * Each field is a comma separated list of values, ranges "a-b" and wildcards "*", each optionally followed by a step
+ * "/n". Months and days of the week can be given by their first three letters, Sunday is 0 or 7. "?" is the same as
+ * "*". As in the classic cron, a task runs on days matching either field if neither the day of the month nor the day
+ * of the week starts with a wildcard.
+ * <p>
+ * Example: "0 *&#47;15 8-17 * * MON-FRI" runs every 15 minutes on weekdays from 08:00 to 17:45.
+ */
+public final class CronExpression {
+
+	// size of the bitsets written by write()
+	static final int SIZE = 27;
+
+	// bit 0 of the days and days of the week marks a field starting with a wildcard, the values start at bit 1
+	private static final int ANY = 1;
+	private static final int ALL_DAYS_OF_WEEK = 0xFE;
+	// days 1, 8, 15, 22 and 29
+	private static final long WEEKLY = 1L | 1L << 7 | 1L << 14 | 1L << 21 | 1L << 28;
+	private static final String[] MONTHS = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT",
+			"NOV", "DEC"};
+	private static final String[] DAYS_OF_WEEK = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+	private final String _expression;
+	private final long _seconds;
+	private final long _minutes;
+	private final int _hours;
+	private final int _days;
+	private final int _months;
+	// ISO days of the week, Monday is 1 and Sunday is 7
+	private final int _daysOfWeek;
+
+	private CronExpression(String expression, long seconds, long minutes, int hours, int days, int months,
+			int daysOfWeek) {
+		_expression = expression;
+		_seconds = seconds;
+		_minutes = minutes;
+		_hours = hours;
+		_days = days;
+		_months = months;
+		_daysOfWeek = daysOfWeek;
+	}
+
+	/**
+	 * Parses a cron expression.
+	 *
+	 * @param expression expression as string.
+	 * @return CronExpression object
+	 * @throws TimeFormatException if the expression is invalid or never matches
+	 */
+	public static CronExpression parse(String expression) {
+		String[] fields = expression.trim().split("\\s+");
+		if (fields.length != 5 && fields.length != 6) {
+			throw new TimeFormatException("cron expression needs 5 or 6 fields");
+		}
+		int offset = fields.length - 5;
+		long seconds = offset == 0 ? 1 : parseField(fields[0], 0, 59, null);
+		long minutes = parseField(fields[offset], 0, 59, null);
+		long hours = parseField(fields[offset + 1], 0, 23, null);
+		long days = parseField(fields[offset + 2], 1, 31, null);
+		long months = parseField(fields[offset + 3], 1, 12, MONTHS);
+		long daysOfWeek = parseField(fields[offset + 4], 0, 7, DAYS_OF_WEEK);
+		if (isWildcard(fields[offset + 2])) {
+			days |= ANY;
+		}
+		// Sunday is 0 or 7, moving it to 7 leaves bit 0 for the wildcard
+		daysOfWeek = daysOfWeek & ~1L | (daysOfWeek & 1L) << 7;
+		if (isWildcard(fields[offset + 4])) {
+			daysOfWeek |= ANY;
+		}
+		CronExpression cron = new CronExpression(expression, seconds, minutes, (int) hours, (int) days, (int) months,
+				(int) daysOfWeek);
+		if (!cron.matchesAnyDay()) {
+			throw new TimeFormatException("cron expression never matches");
+		}
+		return cron;
+	}
+
+	/**
+	 * Calculates the first execution after the given timestamp.
+	 *
+	 * @param timestamp timestamp in milliseconds
+	 * @param zone time zone the fields refer to
+	 * @return timestamp of the next execution in milliseconds
+	 */
+	long next(long timestamp, ZoneId zone) {
+		LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), zone)
+				.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+		while (true) {
+			local = nextLocal(local);
+			// a time skipped by daylight saving time runs at the shifted time, a repeated time runs once
+			long next = ZonedDateTime.of(local, zone).toInstant().toEpochMilli();
+			if (next > timestamp) {
+				return next;
+			}
+			local = local.plusSeconds(1);
+		}
+	}
+
+	/**
+	 * Finds the first local time matching all fields, starting with the given one.
+	 */
+	private LocalDateTime nextLocal(LocalDateTime start) {
+		int year = start.getYear();
+		int month = start.getMonthValue();
+		int day = start.getDayOfMonth();
+		int hour = start.getHour();
+		int minute = start.getMinute();
+		int second = start.getSecond();
+		while (true) {
+			int nextMonth = nextBit(_months, month, 12);
+			if (nextMonth < 0) {
+				year++;
+				month = 1;
+				day = 1;
+				hour = minute = second = 0;
+				continue;
+			}
+			if (nextMonth != month) {
+				month = nextMonth;
+				day = 1;
+				hour = minute = second = 0;
+			}
+			int nextDay = nextBit(days(year, month), day, 31);
+			if (nextDay < 0) {
+				month++;
+				day = 1;
+				hour = minute = second = 0;
+				continue;
+			}
+			if (nextDay != day) {
+				day = nextDay;
+				hour = minute = second = 0;
+			}
+			int nextHour = nextBit(_hours, hour, 23);
+			if (nextHour < 0) {
+				day++;
+				hour = minute = second = 0;
+				continue;
+			}
+			if (nextHour != hour) {
+				hour = nextHour;
+				minute = second = 0;
+			}
+			int nextMinute = nextBit(_minutes, minute, 59);
+			if (nextMinute < 0) {
+				hour++;
+				minute = second = 0;
+				continue;
+			}
+			if (nextMinute != minute) {
+				minute = nextMinute;
+				second = 0;
+			}
+			int nextSecond = nextBit(_seconds, second, 59);
+			if (nextSecond < 0) {
+				minute++;
+				second = 0;
+				continue;
+			}
+			return LocalDateTime.of(year, month, day, hour, minute, nextSecond);
+		}
+	}
+
+	/**
+	 * Combines the days of the month and the days of the week to the matching days of the given month.
+	 *
+	 * @return bitset of the matching days, starting at bit 1
+	 */
+	private long days(int year, int month) {
+		long valid = (1L << Month.of(month).length(Year.isLeap(year)) + 1) - 2;
+		long daysOfWeek = valid;
+		if ((_daysOfWeek & ALL_DAYS_OF_WEEK) != ALL_DAYS_OF_WEEK) {
+			int first = LocalDate.of(year, month, 1).getDayOfWeek().getValue();
+			daysOfWeek = 0;
+			for (int dayOfWeek = 1; dayOfWeek <= 7; dayOfWeek++) {
+				if ((_daysOfWeek & 1 << dayOfWeek) != 0) {
+					daysOfWeek |= WEEKLY << 1 + (dayOfWeek - first + 7) % 7;
+				}
+			}
+		}
+		boolean either = (_days & ANY) == 0 && (_daysOfWeek & ANY) == 0;
+		return (either ? _days | daysOfWeek : _days & daysOfWeek) & valid;
+	}
+
+	/**
+	 * Checks whether the expression matches any day at all, e.g. not only the 30th of February.
+	 */
+	private boolean matchesAnyDay() {
+		if ((_days & ANY) == 0 && (_daysOfWeek & ANY) == 0) {
+			// either field matches, and the days of the week occur in every month
+			return true;
+		}
+		for (int month = 1; month <= 12; month++) {
+			long valid = (1L << Month.of(month).maxLength() + 1) - 2;
+			if ((_months & 1 << month) != 0 && (_days & valid) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the next set bit.
+	 *
+	 * @return index of the first set bit from {@code from} up to {@code max}, -1 if there is none
+	 */
+	private static int nextBit(long bits, int from, int max) {
+		if (from > max) {
+			return -1;
+		}
+		int bit = Long.numberOfTrailingZeros(bits & -1L << from);
+		return bit <= max ? bit : -1;
+	}
+
+	private static boolean isWildcard(String field) {
+		return field.charAt(0) == '*' || field.charAt(0) == '?';
+	}
+
+	/**
+	 * Compiles a field into a bitset of its values.
+	 */
+	private static long parseField(String field, int min, int max, String[] names) {
+		long bits = 0;
+		for (String part : field.split(",", -1)) {
+			int slash = part.indexOf('/');
+			String range = slash < 0 ? part : part.substring(0, slash);
+			int step = slash < 0 ? 1 : parseValue(part.substring(slash + 1), 1, max, null);
+			int from;
+			int to;
+			if (range.equals("*") || range.equals("?")) {
+				from = min;
+				to = max;
+			} else {
+				int dash = range.indexOf('-', 1);
+				from = parseValue(dash < 0 ? range : range.substring(0, dash), min, max, names);
+				// "a/n" runs from a to the end
+				to = dash >= 0 ? parseValue(range.substring(dash + 1), min, max, names) : slash < 0 ? from : max;
+				if (to < from) {
+					throw new TimeFormatException("invalid cron range: " + part);
+				}
+			}
+			for (int value = from; value <= to; value += step) {
+				bits |= 1L << value;
+			}
+		}
+		return bits;
+	}
+
+	private static int parseValue(String value, int min, int max, String[] names) {
+		if (names != null) {
+			String upper = value.toUpperCase(Locale.ROOT);
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equals(upper)) {
+					// months start at 1, days of the week at 0
+					return i + min;
+				}
+			}
+		}
+		int result;
+		try {
+			result = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new TimeFormatException("invalid cron value: " + value);
+		}
+		if (result < min || result > max) {
+			throw new TimeFormatException("cron value out of range: " + value);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the bitsets of this expression.
+	 *
+	 * @param buffer buffer to write to
+	 */
+	void write(ByteBuffer buffer) {
+		buffer.putLong(_seconds);
+		buffer.putLong(_minutes);
+		buffer.putInt(_hours);
+		buffer.putInt(_days);
+		buffer.putShort((short) _months);
+		buffer.put((byte) _daysOfWeek);
+	}
+
+	/**
+	 * Reads bitsets written by {@link #write(ByteBuffer)}.
+	 *
+	 * @param buffer buffer to read from
+	 * @return CronExpression object
+	 */
+	static CronExpression read(ByteBuffer buffer) {
+		long seconds = buffer.getLong();
+		long minutes = buffer.getLong();
+		int hours = buffer.getInt();
+		int days = buffer.getInt();
+		int months = buffer.getShort();
+		int daysOfWeek = buffer.get() & 0xFF;
+		String expression = format(seconds, 0, 59) + " " + format(minutes, 0, 59) + " " + format(hours, 0, 23) + " "
+				+ format(days, 1, 31) + " " + format(months, 1, 12) + " " + format(daysOfWeek, 1, 7);
+		return new CronExpression(expression, seconds, minutes, hours, days, months, daysOfWeek);
+	}
+
+	/**
+	 * Formats a bitset as a list of values and ranges.
+	 */
+	private static String format(long bits, int min, int max) {
+		StringBuilder field = new StringBuilder();
+		int value = nextBit(bits, min, max);
+		if (value == min && nextBit(~bits, min, max) < 0) {
+			return "*";
+		}
+		while (value >= 0) {
+			int end = nextBit(~bits, value, max);
+			end = end < 0 ? max : end - 1;
+			if (field.length() > 0) {
+				field.append(',');
+			}
+			field.append(value);
+			if (end > value) {
+				field.append('-').append(end);
+			}
+			value = nextBit(bits, end + 1, max);
+		}
+		return field.toString();
+	}
+
+	@Override
+	public String toString() {
+		return _expression;
+	}
+}
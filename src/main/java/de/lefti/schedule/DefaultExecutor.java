@@ -0,0 +1,52 @@
+package de.lefti.schedule;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the executor used to run the scheduled tasks if no executor has been set explicitly.
+ */
+final class DefaultExecutor {
+
+	static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	static final int QUEUE_CAPACITY = 1024;
+	static final long KEEP_ALIVE_SECONDS = 60;
+
+	private DefaultExecutor() {
+	}
+
+	/**
+	 * Creates a bounded pool of named worker threads. Idle workers are terminated after a minute. If all workers are
+	 * busy and the queue is full, further executions are rejected with a
+	 * {@link java.util.concurrent.RejectedExecutionException}.
+	 *
+	 * @param name name of the scheduler, used to name the worker threads
+	 * @return new executor
+	 */
+	static ExecutorService create(String name) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY), new WorkerThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static final class WorkerThreadFactory implements ThreadFactory {
+		private final String _name;
+		private final AtomicInteger _count = new AtomicInteger();
+
+		private WorkerThreadFactory(String name) {
+			_name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable);
+			thread.setName(_name + "-Worker-" + _count.incrementAndGet());
+			return thread;
+		}
+	}
+}
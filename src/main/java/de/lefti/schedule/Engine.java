@@ -0,0 +1,37 @@
+package de.lefti.schedule;
+
+/**
+ * Engines available to the core scheduler for keeping track of the scheduled tasks.
+ */
+public enum Engine {
+
+	/**
+	 * Keeps the tasks in a priority queue ordered by their next execution. Adding, removing and polling a task is
+	 * O(log n). This is the default engine.
+	 */
+	PRIORITY_QUEUE {
+		@Override
+		TaskQueue createTaskQueue(long now) {
+			return new HeapTaskQueue();
+		}
+	},
+
+	/**
+	 * Keeps the tasks in a hierarchical timing wheel with a resolution of one millisecond. Adding and removing a task
+	 * is O(1), polling due tasks is amortized O(1). Best suited for very large numbers of tasks.
+	 */
+	TIMING_WHEEL {
+		@Override
+		TaskQueue createTaskQueue(long now) {
+			return new TimingWheelTaskQueue(now);
+		}
+	};
+
+	/**
+	 * Creates an empty task queue of this engine.
+	 *
+	 * @param now current timestamp of the scheduler
+	 * @return TaskQueue object
+	 */
+	abstract TaskQueue createTaskQueue(long now);
+}
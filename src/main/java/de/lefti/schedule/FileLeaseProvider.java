@@ -0,0 +1,115 @@
+package de.lefti.schedule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Leases kept as files in a directory shared by all nodes, e.g. a network file system, or a local directory shared by
+ * several processes. A lease is acquired by atomically creating its file, which fails if another node has created it
+ * before. Lease files are removed once they are older than the retention.
+ */
+public class FileLeaseProvider implements LeaseProvider {
+
+	private static final String SUFFIX = ".lease";
+	// file names of longer keys are hashed to keep them short
+	private static final int MAX_KEY_LENGTH = 128;
+
+	private final Path _directory;
+	private final byte[] _node;
+	private final long _retention;
+	private long _lastCleanup = 0;
+
+	/**
+	 * Creates a provider of leases in the given directory, named after the running JVM and kept for a day.
+	 *
+	 * @param directory shared directory
+	 * @throws IOException if the directory cannot be created
+	 */
+	public FileLeaseProvider(Path directory) throws IOException {
+		this(directory, ManagementFactory.getRuntimeMXBean().getName(), Duration.ofDays(1));
+	}
+
+	/**
+	 * Creates a provider of leases in the given directory.
+	 *
+	 * @param directory shared directory
+	 * @param node name of this node, written to the acquired lease files
+	 * @param retention time lease files are kept after their planned executions
+	 * @throws IOException if the directory cannot be created
+	 */
+	public FileLeaseProvider(Path directory, String node, Duration retention) throws IOException {
+		_directory = Files.createDirectories(directory);
+		_node = node.getBytes(StandardCharsets.UTF_8);
+		_retention = retention.toMillis();
+	}
+
+	@Override
+	public boolean tryAcquire(String key, long plannedExecution) {
+		cleanup(plannedExecution);
+		Path lease = _directory.resolve(fileName(key) + "@" + plannedExecution + SUFFIX);
+		try {
+			Files.write(lease, _node, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			return false;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Removes lease files older than the retention, at most once per retention.
+	 *
+	 * @param now current timestamp
+	 */
+	private void cleanup(long now) {
+		synchronized (this) {
+			if (now - _lastCleanup < _retention) {
+				return;
+			}
+			_lastCleanup = now;
+		}
+		try (DirectoryStream<Path> leases = Files.newDirectoryStream(_directory, "*" + SUFFIX)) {
+			for (Path lease : leases) {
+				String name = lease.getFileName().toString();
+				int separator = name.lastIndexOf('@');
+				try {
+					long plannedExecution = Long.parseLong(name.substring(separator + 1, name.length() - SUFFIX.length()));
+					if (plannedExecution < now - _retention) {
+						Files.deleteIfExists(lease);
+					}
+				} catch (NumberFormatException | IndexOutOfBoundsException e) {
+					// not a lease file
+				}
+			}
+		} catch (IOException e) {
+			// try again with the next cleanup
+			e.printStackTrace();
+		}
+	}
+
+	private static String fileName(String key) {
+		String name = Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+		if (name.length() <= MAX_KEY_LENGTH) {
+			return name;
+		}
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package de.lefti.schedule;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Task queue backed by a binary min-heap on the next execution timestamp. Each task knows its index in the heap, so
+ * adding, polling and removing a task is O(log n). Adding many tasks at once rebuilds the heap in O(n).
+ */
+final class HeapTaskQueue implements TaskQueue {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Schedule[] _heap = new Schedule[INITIAL_CAPACITY];
+	private int _size = 0;
+
+	@Override
+	public void add(Schedule task) {
+		if (_size == _heap.length) {
+			_heap = Arrays.copyOf(_heap, _size * 2);
+		}
+		siftUp(_size++, task);
+	}
+
+	@Override
+	public void addAll(Collection<Schedule> tasks) {
+		if (tasks.size() <= _size) {
+			// cheaper to sift up the new tasks than to rebuild the whole heap
+			for (Schedule task : tasks) {
+				add(task);
+			}
+			return;
+		}
+		if (_size + tasks.size() > _heap.length) {
+			_heap = Arrays.copyOf(_heap, Math.max(_size + tasks.size(), _heap.length * 2));
+		}
+		for (Schedule task : tasks) {
+			place(_size++, task);
+		}
+		for (int i = (_size >>> 1) - 1; i >= 0; i--) {
+			siftDown(i, _heap[i]);
+		}
+	}
+
+	@Override
+	public boolean remove(Schedule task) {
+		int index = task._heapIndex;
+		if (index < 0 || index >= _size || _heap[index] != task) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public void pollDue(long now, Collection<Schedule> dueTasks) {
+		while (_size > 0 && _heap[0]._nextExecution <= now) {
+			dueTasks.add(removeAt(0));
+		}
+	}
+
+	@Override
+	public long nextDeadline() {
+		return _size == 0 ? Long.MAX_VALUE : _heap[0]._nextExecution;
+	}
+
+	@Override
+	public int size() {
+		return _size;
+	}
+
+	@Override
+	public void forEach(Consumer<Schedule> action) {
+		for (int i = 0; i < _size; i++) {
+			action.accept(_heap[i]);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < _size; i++) {
+			_heap[i]._heapIndex = -1;
+			_heap[i] = null;
+		}
+		_size = 0;
+	}
+
+	private Schedule removeAt(int index) {
+		Schedule task = _heap[index];
+		task._heapIndex = -1;
+		Schedule last = _heap[--_size];
+		_heap[_size] = null;
+		if (index < _size) {
+			siftDown(index, last);
+			if (_heap[index] == last) {
+				siftUp(index, last);
+			}
+		}
+		return task;
+	}
+
+	private void siftUp(int index, Schedule task) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (_heap[parent]._nextExecution <= task._nextExecution) {
+				break;
+			}
+			place(index, _heap[parent]);
+			index = parent;
+		}
+		place(index, task);
+	}
+
+	private void siftDown(int index, Schedule task) {
+		int half = _size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < _size && _heap[child + 1]._nextExecution < _heap[child]._nextExecution) {
+				child++;
+			}
+			if (task._nextExecution <= _heap[child]._nextExecution) {
+				break;
+			}
+			place(index, _heap[child]);
+			index = child;
+		}
+		place(index, task);
+	}
+
+	private void place(int index, Schedule task) {
+		_heap[index] = task;
+		task._heapIndex = index;
+	}
+}
@@ -0,0 +1,406 @@
+package de.lefti.schedule;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of scheduled tasks, kept in a memory-mapped file. A scheduler using a journal records the
+ * definitions of its tasks, their cancellations and each dispatched execution, so that it can recover its tasks with
+ * their next executions after a restart, see {@link Scheduler#useJournal(Journal, java.util.function.Function)}. Only
+ * tasks with a key set by {@link Schedule#key(String)} are recorded, the key is used to bind them to their runnables
+ * again.
+ * <p>
+ * Executions are recorded when they are handed over to the executor, so an execution interrupted by a restart is not
+ * run again. The journal is compacted when most of its records are outdated. Records are written to the memory-mapped
+ * file, which survives a crash of the application; {@link #force()} writes them to the storage device. A journal which
+ * cannot be grown or compacted is unusable: the change and all following ones are rejected with a
+ * {@link ScheduleException}, which the scheduler reports like other failures while dispatching.
+ */
+public final class Journal implements Closeable {
+
+	private static final int MAGIC = 0x53434A4C;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 8;
+	// length and checksum in front of each record
+	private static final int RECORD_HEADER_SIZE = 8;
+	// a length of zero marks the end of the journal
+	private static final int END_MARKER_SIZE = 4;
+	private static final int INITIAL_CAPACITY = 1 << 20;
+	private static final int MIN_COMPACTION_SIZE = 1 << 20;
+
+	// types of the records
+	private static final byte DEFINED = 1;
+	private static final byte DISPATCHED = 2;
+	private static final byte REMOVED = 3;
+
+	private final Path _file;
+	private final Map<String, Entry> _entries = new HashMap<>();
+	private final CRC32 _checksum = new CRC32();
+	private ByteBuffer _record = ByteBuffer.allocate(256);
+	private FileChannel _channel;
+	private MappedByteBuffer _buffer;
+	private int _position;
+	// failure that made the journal unusable, changes are rejected after it instead of being lost silently
+	private IOException _failure;
+	// size of the records needed to recover the live tasks, i.e. the size of the compacted journal
+	private long _liveSize = HEADER_SIZE;
+
+	private Journal(Path file) {
+		_file = file;
+	}
+
+	/**
+	 * Opens a journal, creating the file if it does not exist. Records of an incomplete write at the end of the file,
+	 * e.g. after a power failure, are discarded.
+	 *
+	 * @param file file of the journal
+	 * @return Journal object
+	 * @throws IOException if the file cannot be opened or is not a journal
+	 */
+	public static Journal open(Path file) throws IOException {
+		Journal journal = new Journal(file);
+		journal.map();
+		try {
+			journal.read();
+		} catch (IOException e) {
+			journal.close();
+			throw e;
+		}
+		return journal;
+	}
+
+	/**
+	 * @return number of live tasks in the journal
+	 */
+	public synchronized int size() {
+		return _entries.size();
+	}
+
+	/**
+	 * Rewrites the journal with only the records needed to recover the live tasks. The journal is compacted
+	 * automatically when most of its records are outdated.
+	 *
+	 * @throws IOException if the compacted journal cannot be written
+	 */
+	public synchronized void compact() throws IOException {
+		if (_failure != null) {
+			throw new IOException("journal unusable: " + _file, _failure);
+		}
+		if (_buffer == null) {
+			return;
+		}
+		Path temp = _file.resolveSibling(_file.getFileName() + ".tmp");
+		int position;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(_liveSize));
+			buffer.putInt(0, MAGIC).putInt(4, VERSION);
+			position = HEADER_SIZE;
+			for (Map.Entry<String, Entry> entry : _entries.entrySet()) {
+				encode(DEFINED, entry.getKey(), entry.getValue());
+				position = write(buffer, position);
+			}
+			buffer.force();
+		}
+		// closing the channel does not unmap the buffer, the mapping of the replaced file is only released once the
+		// buffer is garbage collected; platforms refusing to replace a mapped file fail the move then
+		_channel.close();
+		_buffer = null;
+		try {
+			Files.move(temp, _file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// the current journal is still complete, keep appending to it
+			try {
+				map();
+			} catch (IOException reopen) {
+				e.addSuppressed(reopen);
+				_failure = e;
+			}
+			throw e;
+		}
+		try {
+			map();
+		} catch (IOException e) {
+			_failure = e;
+			throw e;
+		}
+		_position = position;
+	}
+
+	/**
+	 * Writes all records to the storage device.
+	 */
+	public synchronized void force() {
+		if (_buffer != null) {
+			_buffer.force();
+		}
+	}
+
+	/**
+	 * Closes the journal. Changes of the tasks are not recorded any more.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (_buffer != null) {
+			_buffer.force();
+			_buffer = null;
+		}
+		if (_channel != null) {
+			_channel.close();
+		}
+	}
+
+
+	/**
+	 * Creates the live tasks of the journal, without their runnables.
+	 *
+	 * @param scheduler scheduler running the tasks
+	 * @return tasks by their keys, in no particular order
+	 */
+	synchronized Map<String, Schedule> schedules(Scheduler scheduler) {
+		Map<String, Schedule> schedules = new LinkedHashMap<>();
+		for (Map.Entry<String, Entry> entry : _entries.entrySet()) {
+			Schedule schedule = Schedule.readDefinition(scheduler, ByteBuffer.wrap(entry.getValue()._definition));
+			schedule._key = entry.getKey();
+			schedule._nextExecution = entry.getValue()._nextExecution;
+			schedules.put(entry.getKey(), schedule);
+		}
+		return schedules;
+	}
+
+	synchronized void defined(Schedule task) {
+		compactIfNeeded();
+		ByteBuffer definition = ByteBuffer.allocate(Schedule.DEFINITION_SIZE);
+		task.writeDefinition(definition);
+		Entry entry = new Entry(definition.array(), task._nextExecution);
+		int size = encode(DEFINED, task._key, entry);
+		if (_entries.put(task._key, entry) == null) {
+			_liveSize += size;
+		}
+		append();
+	}
+
+	synchronized void dispatched(Schedule task) {
+		if (!task._repeat) {
+			removed(task);
+			return;
+		}
+		compactIfNeeded();
+		Entry entry = _entries.get(task._key);
+		if (entry == null) {
+			// replaced or removed in the meantime
+			return;
+		}
+		entry._nextExecution = task._nextExecution;
+		encode(DISPATCHED, task._key, entry);
+		append();
+	}
+
+	synchronized void removed(Schedule task) {
+		compactIfNeeded();
+		Entry entry = _entries.remove(task._key);
+		if (entry == null) {
+			return;
+		}
+		_liveSize -= encode(DEFINED, task._key, entry);
+		encode(REMOVED, task._key, null);
+		append();
+	}
+
+	/**
+	 * Encodes a record into the record buffer.
+	 *
+	 * @return size of the record including its header
+	 */
+	private int encode(byte type, String key, Entry entry) {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		if (keyBytes.length > 0xFFFF) {
+			throw new ScheduleException("key too long");
+		}
+		int size = 1 + 2 + keyBytes.length + Schedule.DEFINITION_SIZE + 8;
+		if (_record.capacity() < size) {
+			_record = ByteBuffer.allocate(size);
+		}
+		_record.clear();
+		_record.put(type).putShort((short) keyBytes.length).put(keyBytes);
+		if (type == DEFINED) {
+			_record.put(entry._definition);
+		}
+		if (type != REMOVED) {
+			_record.putLong(entry._nextExecution);
+		}
+		_record.flip();
+		return RECORD_HEADER_SIZE + _record.remaining();
+	}
+
+	/**
+	 * Compacts the journal when most of its records are outdated, before writing a change.
+	 *
+	 * @throws ScheduleException if the journal is unusable
+	 */
+	private void compactIfNeeded() {
+		checkUsable();
+		if (_buffer != null && _position > MIN_COMPACTION_SIZE && _position > 2 * _liveSize) {
+			try {
+				compact();
+			} catch (IOException e) {
+				// the journal would keep growing, and the compaction would be retried on every change
+				_failure = e;
+				throw unusable();
+			}
+		}
+	}
+
+	/**
+	 * Appends the encoded record to the journal, growing it if needed.
+	 *
+	 * @throws ScheduleException if the journal cannot be grown
+	 */
+	private void append() {
+		if (_buffer == null) {
+			// closed
+			return;
+		}
+		try {
+			long required = (long) _position + RECORD_HEADER_SIZE + _record.remaining() + END_MARKER_SIZE;
+			if (required > _buffer.capacity()) {
+				_buffer.force();
+				_buffer = _channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(required));
+			}
+			_position = write(_buffer, _position);
+		} catch (IOException e) {
+			_failure = e;
+			throw unusable();
+		}
+	}
+
+	private void checkUsable() {
+		if (_failure != null) {
+			throw unusable();
+		}
+	}
+
+	private ScheduleException unusable() {
+		return new ScheduleException("journal unusable: " + _file, _failure);
+	}
+
+	/**
+	 * Writes the encoded record at the given position, followed by the end marker.
+	 *
+	 * @return position after the record
+	 */
+	private int write(ByteBuffer buffer, int position) {
+		int length = _record.remaining();
+		_checksum.reset();
+		_checksum.update(_record.duplicate());
+		int end = position + RECORD_HEADER_SIZE + length;
+		buffer.putInt(end, 0);
+		buffer.putInt(position + 4, (int) _checksum.getValue());
+		ByteBuffer target = buffer.duplicate();
+		target.position(position + RECORD_HEADER_SIZE);
+		target.put(_record.duplicate());
+		// the length is written last, so that the record is only valid once it is complete
+		buffer.putInt(position, length);
+		return end;
+	}
+
+	private void map() throws IOException {
+		_channel = FileChannel.open(_file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		_buffer = _channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(_channel.size(), INITIAL_CAPACITY));
+	}
+
+	private void read() throws IOException {
+		if (_buffer.getInt(0) == 0) {
+			// new journal
+			_buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(HEADER_SIZE, 0);
+			_position = HEADER_SIZE;
+			return;
+		}
+		if (_buffer.getInt(0) != MAGIC || _buffer.getInt(4) != VERSION) {
+			throw new IOException("not a journal: " + _file);
+		}
+		int position = HEADER_SIZE;
+		while (position + RECORD_HEADER_SIZE <= _buffer.capacity()) {
+			int length = _buffer.getInt(position);
+			if (length <= 0 || position + RECORD_HEADER_SIZE + length > _buffer.capacity()) {
+				break;
+			}
+			ByteBuffer record = _buffer.duplicate();
+			record.limit(position + RECORD_HEADER_SIZE + length).position(position + RECORD_HEADER_SIZE);
+			_checksum.reset();
+			_checksum.update(record.duplicate());
+			if ((int) _checksum.getValue() != _buffer.getInt(position + 4)) {
+				// incomplete write
+				break;
+			}
+			apply(record.slice());
+			position += RECORD_HEADER_SIZE + length;
+		}
+		_position = position;
+		if (position + END_MARKER_SIZE <= _buffer.capacity()) {
+			_buffer.putInt(position, 0);
+		}
+	}
+
+	private void apply(ByteBuffer record) {
+		byte type = record.get();
+		byte[] keyBytes = new byte[record.getShort() & 0xFFFF];
+		record.get(keyBytes);
+		String key = new String(keyBytes, StandardCharsets.UTF_8);
+		if (type == DEFINED) {
+			byte[] definition = new byte[Schedule.DEFINITION_SIZE];
+			record.get(definition);
+			Entry entry = new Entry(definition, record.getLong());
+			if (_entries.put(key, entry) == null) {
+				_liveSize += RECORD_HEADER_SIZE + 1 + 2 + keyBytes.length + Schedule.DEFINITION_SIZE + 8;
+			}
+		} else if (type == DISPATCHED) {
+			Entry entry = _entries.get(key);
+			if (entry != null) {
+				entry._nextExecution = record.getLong();
+			}
+		} else if (type == REMOVED) {
+			if (_entries.remove(key) != null) {
+				_liveSize -= RECORD_HEADER_SIZE + 1 + 2 + keyBytes.length + Schedule.DEFINITION_SIZE + 8;
+			}
+		}
+	}
+
+	private static long capacityFor(long size) {
+		long capacity = INITIAL_CAPACITY;
+		while (capacity < size + END_MARKER_SIZE) {
+			capacity *= 2;
+		}
+		if (capacity > Integer.MAX_VALUE) {
+			throw new ScheduleException("journal too large");
+		}
+		return capacity;
+	}
+
+	/**
+	 * Live task of the journal.
+	 */
+	private static final class Entry {
+		private final byte[] _definition;
+		private long _nextExecution;
+
+		private Entry(byte[] definition, long nextExecution) {
+			_definition = definition;
+			_nextExecution = nextExecution;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package de.lefti.schedule;
+
+/**
+ * Provides leases for the executions of tasks, so that each execution is run by only one of several nodes running the
+ * same tasks, see {@link Scheduler#useLeases(LeaseProvider)}. An execution is identified by the key of its task and
+ * its planned timestamp, which are the same on all nodes.
+ */
+public interface LeaseProvider {
+
+	/**
+	 * Tries to acquire the lease of an execution. Only the first node asking for the lease of an execution may get it,
+	 * all other nodes skip the execution.
+	 *
+	 * @param key key of the task
+	 * @param plannedExecution timestamp the execution has been planned for
+	 * @return {@code true} if this node has acquired the lease and runs the execution; {@code false} else
+	 */
+	boolean tryAcquire(String key, long plannedExecution);
+}
@@ -0,0 +1,24 @@
+package de.lefti.schedule;
+
+/**
+ * Policies for executions of a repeated task that have been missed, e.g. after a long garbage collection pause, a
+ * suspended machine or a jump of the wall clock. An execution is missed if the execution after it is already due as
+ * well.
+ */
+public enum MisfirePolicy {
+
+	/**
+	 * Runs the task once and continues with the next execution in the future. This is the default policy.
+	 */
+	FIRE_ONCE,
+
+	/**
+	 * Runs the task for each missed execution, one after another, until it has caught up.
+	 */
+	FIRE_ALL,
+
+	/**
+	 * Does not run the task for missed executions and continues with the next execution in the future.
+	 */
+	SKIP
+}
@@ -0,0 +1,120 @@
+package de.lefti.schedule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring assigning the keys of tasks to the nodes of a cluster, see
+ * {@link Scheduler#usePartitioning(String, NodeRing)}. Each node is placed on the ring several times, a key belongs to
+ * the node following its hash on the ring. When a node joins or leaves, only the keys of that node move.
+ * <p>
+ * Rings are immutable, membership changes are applied by creating a new ring. The ring only depends on the names of
+ * the nodes, so all nodes agree on the owners as long as they know the same members.
+ */
+public final class NodeRing {
+
+	private static final int DEFAULT_VIRTUAL_NODES = 128;
+
+	private final Set<String> _nodes;
+	// hashes of the virtual nodes in ascending order, and their nodes
+	private final long[] _points;
+	private final String[] _owners;
+
+	private NodeRing(Set<String> nodes, int virtualNodes) {
+		_nodes = Collections.unmodifiableSet(nodes);
+		int size = nodes.size() * virtualNodes;
+		long[] points = new long[size];
+		String[] owners = new String[size];
+		int i = 0;
+		for (String node : nodes) {
+			for (int replica = 0; replica < virtualNodes; replica++) {
+				points[i] = hash(node + "#" + replica);
+				owners[i] = node;
+				i++;
+			}
+		}
+		// sort the points and their owners together
+		Integer[] order = new Integer[size];
+		for (int j = 0; j < size; j++) {
+			order[j] = j;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(points[a], points[b]));
+		_points = new long[size];
+		_owners = new String[size];
+		for (int j = 0; j < size; j++) {
+			_points[j] = points[order[j]];
+			_owners[j] = owners[order[j]];
+		}
+	}
+
+	/**
+	 * Creates a ring of the given nodes.
+	 *
+	 * @param nodes names of the nodes
+	 * @return NodeRing object
+	 */
+	public static NodeRing of(Collection<String> nodes) {
+		return of(nodes, DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * Creates a ring of the given nodes, each placed the given number of times on the ring. More virtual nodes spread
+	 * the keys more evenly.
+	 *
+	 * @param nodes names of the nodes
+	 * @param virtualNodes number of virtual nodes per node
+	 * @return NodeRing object
+	 */
+	public static NodeRing of(Collection<String> nodes, int virtualNodes) {
+		if (virtualNodes < 1) {
+			throw new ScheduleException("use positive numbers of virtual nodes only");
+		}
+		return new NodeRing(new TreeSet<>(nodes), virtualNodes);
+	}
+
+	/**
+	 * @return names of the nodes of this ring
+	 */
+	public Set<String> nodes() {
+		return _nodes;
+	}
+
+	/**
+	 * Returns the node owning a key.
+	 *
+	 * @param key key of a task
+	 * @return name of the owning node, {@code null} if the ring is empty
+	 */
+	public String owner(String key) {
+		if (_points.length == 0) {
+			return null;
+		}
+		int index = Arrays.binarySearch(_points, hash(key));
+		if (index < 0) {
+			// insertion point, i.e. the first point after the hash
+			index = -index - 1;
+		}
+		return _owners[index == _points.length ? 0 : index];
+	}
+
+	/**
+	 * 64 bit FNV-1a hash of the UTF-8 bytes, with mixed bits to spread similar strings across the whole ring.
+	 */
+	private static long hash(String value) {
+		long hash = 0xCBF29CE484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001B3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,23 @@
+package de.lefti.schedule;
+
+/**
+ * Policies for executions of a task that are due while its previous executions are still running.
+ */
+public enum OverlapPolicy {
+
+	/**
+	 * Runs the task regardless of its running executions. This is the default policy.
+	 */
+	ALLOW,
+
+	/**
+	 * Skips the execution while the limit of running executions is reached.
+	 */
+	SKIP,
+
+	/**
+	 * Queues the execution while the limit of running executions is reached, it is run as soon as a running execution
+	 * has finished. At most one execution is queued, further executions are skipped.
+	 */
+	QUEUE
+}
@@ -2,104 +2,88 @@ package de.lefti.schedule;
 
 import java.time.*;
 import java.time.temporal.ChronoUnit;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 public class Schedule {
 
+	final Scheduler _scheduler;
 	private final int _interval;
 	private ChronoUnit _unit;
-	private Runnable _task;
+	Runnable _task;
+	Supplier<? extends CompletionStage<?>> _asyncTask;
+	TickPublisher _publisher;
+	String _key;
+	// identifies a task with a key, also after rebuilding it from its definition
+	long _id = _ids.incrementAndGet();
 	private DayOfWeek _targetDayOfWeek;
+	private CronExpression _cron;
 
-	private boolean _alive = true;
-	private boolean _repeat = true;
+	boolean _repeat = true;
 	private boolean _usingTargetDate = false;
 	private boolean _usingTargetTime = false;
-	private long _nextExecution = 0;
+	// the day of week is set explicitly instead of being the current one, only used to check tasks for leases
+	private boolean _usingTargetDayOfWeek = false;
+	volatile boolean _alive = true;
+	MisfirePolicy _misfirePolicy = MisfirePolicy.FIRE_ONCE;
+	OverlapPolicy _overlapPolicy = OverlapPolicy.ALLOW;
+	private long _spread = 0;
+	private int _maxConcurrent = Integer.MAX_VALUE;
+	// running executions, the planned timestamp of the queued execution and the skipped executions, guarded by this
+	private int _running = 0;
+	private long _queuedExecution = 0;
+	private long _skipped = 0;
+	long _nextExecution = 0;
 	private int _targetMonth = 1;
 	private int _targetDay = 1;
 	private int _targetHour = 0;
 	private int _targetMinute = 0;
 	private int _targetSecond = 0;
 
-	private static final CoreScheduler _coreScheduler = new CoreScheduler();
+	// metrics of the executions, created by the scheduler while metrics are enabled
+	volatile TaskStatistics _statistics;
 
-	private static final class CoreScheduler implements Runnable {
-		private final Set<Schedule> _scheduledTasks = new HashSet<>();
-		private boolean _alive = true;
+	// bookkeeping of the engines
+	int _heapIndex = -1;
+	Schedule _wheelPrev;
+	Schedule _wheelNext;
+	TimingWheelTaskQueue.Slot _wheelSlot;
 
-		public void kill() {
-			_alive = false;
-		}
-
-		public synchronized void wakeUp() {
-			this.notify();
-		}
-
-		public synchronized boolean addTask(Schedule task) {
-			_scheduledTasks.add(task);
-			return _scheduledTasks.size() == 1;
-		}
-
-		@Override
-		public synchronized void run() {
-			Set<Schedule> toDelete = new HashSet<>();
-			while (_alive) {
-				try {
-					long nextExecution = Long.MAX_VALUE;
-					for (Schedule scheduledTask : _scheduledTasks) {
-						if (scheduledTask._alive) {
-							nextExecution = Math.min(scheduledTask._nextExecution, nextExecution);
-						} else {
-							toDelete.add(scheduledTask);
-						}
-					}
-					_scheduledTasks.removeAll(toDelete);
-					toDelete.clear();
-					long now = System.currentTimeMillis();
-					if (nextExecution > now) {
-						this.wait(nextExecution - now);
-					}
-					for (Schedule scheduledTask : _scheduledTasks) {
-						if (scheduledTask.shouldRun()) {
-							new Thread(scheduledTask._task).start();
-							if (scheduledTask._repeat) {
-								// now reschedule
-								scheduledTask._nextExecution = scheduledTask.nextExecutionTimestamp();
-							} else {
-								scheduledTask.cancel();
-							}
-						}
-					}
-
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-			// clear when not alive any more
-			_scheduledTasks.clear();
-		}
-	}
+	private static final Scheduler _coreScheduler = new Scheduler("CoreScheduler");
+	private static final AtomicLong _ids = new AtomicLong();
 
 	/**
-	 * Private accessed constructor.
+	 * Package accessed constructor, use the factory methods of {@link Scheduler} instead.
 	 *
-	 * @param interval base interval for execution.
+	 * @param scheduler scheduler running the task
+	 * @param interval base interval for execution
+	 * @param repeat {@code true} for continuous repeated tasks; {@code false} else
 	 */
-	private Schedule(int interval) {
+	Schedule(Scheduler scheduler, int interval, boolean repeat) {
+		_scheduler = scheduler;
 		_interval = interval;
+		_repeat = repeat;
 	}
 
 	/**
-	 * Private accessed constructor.
+	 * Package accessed constructor, use {@link Scheduler#cron(CronExpression)} instead.
 	 *
-	 * @param interval base interval for execution
-	 * @param repeat {@code true} for continuous repeated tasks; {@code false} else
+	 * @param scheduler scheduler running the task
+	 * @param cron cron expression of the executions
 	 */
-	private Schedule(int interval, boolean repeat) {
-		_interval = interval;
-		_repeat = repeat;
+	Schedule(Scheduler scheduler, CronExpression cron) {
+		this(scheduler, 1, true);
+		_cron = cron;
 	}
 
 	/**
@@ -108,7 +92,7 @@ public class Schedule {
 	 * @return Schedule object
 	 */
 	public static Schedule every() {
-		return new Schedule(1);
+		return _coreScheduler.every();
 	}
 
 	/**
@@ -118,13 +102,7 @@ public class Schedule {
 	 * @return Schedule object
 	 */
 	public static Schedule every(int interval) {
-		if (interval == 1) {
-			throw new IntervalException("use every() instead");
-		}
-		if (interval < 1) {
-			throw new IntervalException("use positive interval values only");
-		}
-		return new Schedule(interval);
+		return _coreScheduler.every(interval);
 	}
 
 	/**
@@ -134,7 +112,17 @@ public class Schedule {
 	 * @return Schedule object
 	 */
 	public static Schedule once() {
-		return new Schedule(1, false);
+		return _coreScheduler.once();
+	}
+
+	/**
+	 * Creates a scheduled task run at the times matching a cron expression, see {@link CronExpression}.
+	 *
+	 * @param expression cron expression as string.
+	 * @return Schedule object
+	 */
+	public static Schedule cron(String expression) {
+		return _coreScheduler.cron(expression);
 	}
 
 	/**
@@ -259,7 +247,7 @@ public class Schedule {
 			throw new ScheduleException("schedule unit already set");
 		}
 		_unit = ChronoUnit.WEEKS;
-		_targetDayOfWeek = ZonedDateTime.now().getDayOfWeek();
+		_targetDayOfWeek = ZonedDateTime.now(_scheduler.clock()).getDayOfWeek();
 		return this;
 	}
 
@@ -274,6 +262,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.MONDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -288,6 +277,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.TUESDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -302,6 +292,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.WEDNESDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -316,6 +307,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.THURSDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -330,6 +322,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.FRIDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -344,6 +337,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.SATURDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -358,6 +352,7 @@ public class Schedule {
 		}
 		_unit = ChronoUnit.WEEKS;
 		_targetDayOfWeek = DayOfWeek.SUNDAY;
+		_usingTargetDayOfWeek = true;
 		return this;
 	}
 
@@ -593,75 +588,195 @@ public class Schedule {
 	 * @return Schedule object
 	 */
 	public Schedule at(String timestamp) {
+		checkTimeUnit();
+		return at(TimeSpec.parse(timestamp));
+	}
+
+	/**
+	 * Sets the scheduled task to be run at a given, already parsed time. See {@link #at(String)} for the formats
+	 * fitting to the unit of this task.
+	 *
+	 * @param time timestamp parsed by {@link TimeSpec#parse(String)}.
+	 * @return Schedule object
+	 */
+	public Schedule at(TimeSpec time) {
+		checkTimeUnit();
 		_usingTargetTime = true;
-		if (!_repeat && _unit == null) {
-			_unit = ChronoUnit.YEARS;
+		if (!time.isValidFor(_unit)) {
+			throw new TimeFormatException("invalid time format");
 		}
-		if (_unit == ChronoUnit.MINUTES) {
-			if (!timestamp.matches("^:[0-5]\\d$")) {
-				throw new TimeFormatException("invalid time format");
-			}
-		} else if (_unit == ChronoUnit.HOURS) {
-			if (!timestamp.matches("^([0-5]\\d)?:[0-5]\\d$")) {
-				throw new TimeFormatException("invalid time format");
-			}
-		} else if (_unit == ChronoUnit.DAYS || _unit == ChronoUnit.WEEKS) {
-			if (!timestamp.matches("^([0-2]\\d:)?[0-5]\\d:[0-5]\\d$")) {
-				throw new TimeFormatException("invalid time format");
-			}
-		} else if (_unit == ChronoUnit.MONTHS) {
-			if (!timestamp.matches("^(-[0-3]\\d)((\\s[0-2]\\d):([0-5]\\d)(:[0-5]\\d)?)?$")) {
-				throw new TimeFormatException("invalid time format");
-			}
+		if (_unit == ChronoUnit.MONTHS || _unit == ChronoUnit.YEARS) {
 			_usingTargetDate = true;
-		} else if (_unit == ChronoUnit.YEARS) {
-			if (!timestamp.matches("^([0-1]\\d)?(-[0-3]\\d)((\\s[0-2]\\d):([0-5]\\d)(:[0-5]\\d)?)?$")) {
-				throw new TimeFormatException("invalid time format");
-			}
-			_usingTargetDate = true;
-		} else {
-			throw new ScheduleException("invalid time unit");
 		}
-		// Split on colon, whitespace and hyphen
-		String[] values = timestamp.split(":|\\s|-");
+		// values are in the order of appearance, a missing leading value is negative
+		int[] values = time._values;
 		if (values.length == 5) {
-			if (!values[0].isEmpty()) {
-				_targetMonth = Integer.parseInt(values[0]);
+			if (values[0] >= 0) {
+				_targetMonth = values[0];
 			}
-			_targetDay = Integer.parseInt(values[1]);
-			_targetHour = Integer.parseInt(values[2]);
-			_targetMinute = Integer.parseInt(values[3]);
-			_targetSecond = Integer.parseInt(values[4]);
+			_targetDay = values[1];
+			_targetHour = values[2];
+			_targetMinute = values[3];
+			_targetSecond = values[4];
 		} else if (values.length == 4) {
-			if (!values[0].isEmpty()) {
-				_targetMonth = Integer.parseInt(values[0]);
+			if (values[0] >= 0) {
+				_targetMonth = values[0];
 			}
-			_targetDay = Integer.parseInt(values[1]);
-			_targetHour = Integer.parseInt(values[2]);
-			_targetMinute = Integer.parseInt(values[3]);
+			_targetDay = values[1];
+			_targetHour = values[2];
+			_targetMinute = values[3];
 		} else if (values.length == 3) {
-			_targetHour = Integer.parseInt(values[0]);
-			_targetMinute = Integer.parseInt(values[1]);
-			_targetSecond = Integer.parseInt(values[2]);
-		} else if (values.length == 2 && _unit == ChronoUnit.MINUTES) {
-			_targetSecond = Integer.parseInt(values[1]);
-		} else if (values.length == 2 && _unit == ChronoUnit.HOURS) {
-			if (values[0].isEmpty()) {
+			_targetHour = values[0];
+			_targetMinute = values[1];
+			_targetSecond = values[2];
+		} else if (_unit == ChronoUnit.MINUTES) {
+			_targetSecond = values[1];
+		} else if (_unit == ChronoUnit.HOURS) {
+			if (values[0] < 0) {
 				// implies that default hour is used
-				_targetMinute = Integer.parseInt(values[1]);
+				_targetMinute = values[1];
 			} else {
-				_targetMinute = Integer.parseInt(values[0]);
-				_targetSecond = Integer.parseInt(values[1]);
+				_targetMinute = values[0];
+				_targetSecond = values[1];
 			}
-		} else if (values.length == 2 && (_unit == ChronoUnit.DAYS || _unit == ChronoUnit.WEEKS)) {
-			_targetHour = Integer.parseInt(values[0]);
-			_targetMinute = Integer.parseInt(values[1]);
-		} else if (values.length == 2 && (_unit == ChronoUnit.MONTHS || _unit == ChronoUnit.YEARS)) {
-			if (!values[0].isEmpty()) {
-				_targetMonth = Integer.parseInt(values[0]);
+		} else if (_unit == ChronoUnit.DAYS || _unit == ChronoUnit.WEEKS) {
+			_targetHour = values[0];
+			_targetMinute = values[1];
+		} else {
+			if (values[0] >= 0) {
+				_targetMonth = values[0];
 			}
-			_targetDay = Integer.parseInt(values[1]);
+			_targetDay = values[1];
+		}
+		return this;
+	}
+
+	private void checkTimeUnit() {
+		if (!_repeat && _unit == null) {
+			_unit = ChronoUnit.YEARS;
+		}
+		if (_unit == null || _unit == ChronoUnit.SECONDS) {
+			throw new ScheduleException("invalid time unit");
+		}
+	}
+
+	/**
+	 * Sets a stable key identifying this task, e.g. to spread its executions by {@link #spread(Duration)}.
+	 *
+	 * @param key key of the task
+	 * @return Schedule object
+	 */
+	public Schedule key(String key) {
+		if (key == null || key.isEmpty()) {
+			throw new ScheduleException("key must not be empty");
 		}
+		_key = key;
+		return this;
+	}
+
+	/**
+	 * Delays the executions of this task by an offset within the given window. The offset is derived from the key of
+	 * the task, so tasks scheduled for the same time are spread evenly across the window instead of all running at
+	 * once, while each task keeps its offset across restarts. Requires a key set by {@link #key(String)}.
+	 *
+	 * @param window window to spread the executions across
+	 * @return Schedule object
+	 */
+	public Schedule spread(Duration window) {
+		if (window.isNegative()) {
+			throw new ScheduleException("use positive windows only");
+		}
+		_spread = window.toMillis();
+		return this;
+	}
+
+	/**
+	 * Sets how missed executions of this task are handled. Defaults to {@link MisfirePolicy#FIRE_ONCE}.
+	 *
+	 * @param policy policy to be used
+	 * @return Schedule object
+	 */
+	public Schedule onMisfire(MisfirePolicy policy) {
+		if (policy == null) {
+			throw new ScheduleException("misfire policy must not be null");
+		}
+		_misfirePolicy = policy;
+		return this;
+	}
+
+	/**
+	 * Sets how executions are handled that are due while the previous execution of this task is still running.
+	 * Defaults to {@link OverlapPolicy#ALLOW}.
+	 *
+	 * @param policy policy to be used
+	 * @return Schedule object
+	 */
+	public Schedule onOverlap(OverlapPolicy policy) {
+		return onOverlap(policy, 1);
+	}
+
+	/**
+	 * Sets how executions are handled that are due while a given number of executions of this task is still running.
+	 * The limit is ignored by {@link OverlapPolicy#ALLOW}.
+	 *
+	 * @param policy policy to be used
+	 * @param maxConcurrent maximum number of concurrently running executions
+	 * @return Schedule object
+	 */
+	public Schedule onOverlap(OverlapPolicy policy, int maxConcurrent) {
+		if (policy == null) {
+			throw new ScheduleException("overlap policy must not be null");
+		}
+		if (maxConcurrent < 1) {
+			throw new ScheduleException("use positive limits only");
+		}
+		_overlapPolicy = policy;
+		_maxConcurrent = policy == OverlapPolicy.ALLOW ? Integer.MAX_VALUE : maxConcurrent;
+		return this;
+	}
+
+	/**
+	 * Sets the actual task without scheduling it. Use this to schedule many tasks at once with
+	 * {@link Scheduler#runAll(Collection)}.
+	 *
+	 * @param task task to be run.
+	 * @return Schedule object
+	 */
+	public Schedule task(Runnable task) {
+		_task = task;
+		_asyncTask = null;
+		_publisher = null;
+		return this;
+	}
+
+	/**
+	 * Sets the actual asynchronous task without scheduling it, see {@link #runAsync(Supplier)}. Use this to schedule
+	 * many tasks at once with {@link Scheduler#runAll(Collection)}.
+	 *
+	 * @param task task starting an asynchronous operation.
+	 * @return Schedule object
+	 */
+	public Schedule taskAsync(Supplier<? extends CompletionStage<?>> task) {
+		_asyncTask = task;
+		_task = null;
+		_publisher = null;
+		return this;
+	}
+
+	/**
+	 * Sets the publisher of the ticks without scheduling it, see {@link #publish(TickPublisher)}. Use this to schedule
+	 * many tasks at once with {@link Scheduler#runAll(Collection)}.
+	 *
+	 * @param publisher publisher of the ticks
+	 * @return Schedule object
+	 */
+	public Schedule task(TickPublisher publisher) {
+		if (publisher == null) {
+			throw new ScheduleException("publisher must not be null");
+		}
+		_publisher = publisher;
+		_task = null;
+		_asyncTask = null;
 		return this;
 	}
 
@@ -672,44 +787,340 @@ public class Schedule {
 	 * @return Schedule object
 	 */
 	public Schedule run(Runnable task) {
-		_task = task;
+		task(task);
 		_nextExecution = nextExecutionTimestamp();
-		if (_coreScheduler.addTask(this)) {
-			// This means, we added the first task, so we start the core scheduler
-			Thread t = new Thread(_coreScheduler);
-			t.setName("CoreScheduler");
-			t.start();
-		} else {
-			_coreScheduler.wakeUp();
-		}
+		_scheduler.addTask(this);
+		return this;
+	}
+
+	/**
+	 * Schedules an asynchronous task. Each execution starts the operation and is finished when the returned stage
+	 * completes, no thread is blocked while waiting for it. Overlap handling and metrics refer to the completion of the
+	 * stage, a stage completing exceptionally counts as failed execution.
+	 *
+	 * @param task task starting an asynchronous operation.
+	 * @return Schedule object
+	 */
+	public Schedule runAsync(Supplier<? extends CompletionStage<?>> task) {
+		taskAsync(task);
+		_nextExecution = nextExecutionTimestamp();
+		_scheduler.addTask(this);
+		return this;
+	}
+
+	/**
+	 * Schedules this task to publish a {@link Tick} for each execution, instead of running a task. The tick is published
+	 * by the thread of the scheduler, without occupying a worker. Overlap handling, leases and metrics apply to
+	 * publishing the tick.
+	 *
+	 * @param publisher publisher of the ticks
+	 * @return Schedule object
+	 */
+	public Schedule publish(TickPublisher publisher) {
+		task(publisher);
+		_nextExecution = nextExecutionTimestamp();
+		_scheduler.addTask(this);
 		return this;
 	}
 
+	/**
+	 * @return {@code true} if a runnable, an asynchronous task or a publisher is set; {@code false} else
+	 */
+	boolean hasTask() {
+		return _task != null || _asyncTask != null || _publisher != null;
+	}
+
+	/**
+	 * Schedules many tasks of the default scheduler at once, see {@link Scheduler#runAll(Collection)}.
+	 *
+	 * @param schedules Schedule objects with their tasks set by {@link #task(Runnable)}
+	 */
+	public static void runAll(Collection<Schedule> schedules) {
+		_coreScheduler.runAll(schedules);
+	}
+
 	/**
 	 * Cancels the scheduled task. If the task is currently running, it will be finished. If not, the task is cancelled
 	 * immediately.
 	 */
 	public void cancel() {
-		_alive = false;
+		if (_alive) {
+			_alive = false;
+			_scheduler.removeTask(this);
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of this task. Metrics are only recorded while enabled by
+	 * {@link Scheduler#useMetrics(boolean)}, except for the skipped executions, which are always counted.
+	 *
+	 * @return ScheduleMetrics object
+	 */
+	public ScheduleMetrics metrics() {
+		TaskStatistics statistics = _statistics;
+		long skipped = skipped();
+		return statistics == null ? new ScheduleMetrics(0, 0, skipped, 0, 0, 0, 0, 0) : statistics.snapshot(skipped);
+	}
+
+	/**
+	 * Returns the upcoming executions of this task, calculated lazily one after another without changing the task. The
+	 * stream starts with the next planned execution of a scheduled task, or with the first execution of a task that is
+	 * not scheduled yet. It is infinite for repeated tasks, use e.g. {@link LongStream#limit(long)} for a preview.
+	 *
+	 * @return timestamps of the executions in milliseconds since the epoch
+	 */
+	public LongStream upcoming() {
+		long next = _nextExecution;
+		if (!_alive) {
+			return LongStream.empty();
+		}
+		PrimitiveIterator.OfLong executions = upcoming(next == 0 ? nextExecutionTimestamp(0) : next);
+		return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(executions,
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Iterates over the executions of this task, starting with the given one.
+	 *
+	 * @param first timestamp of the first execution
+	 * @return PrimitiveIterator object
+	 */
+	PrimitiveIterator.OfLong upcoming(long first) {
+		return new PrimitiveIterator.OfLong() {
+			private long _next = first;
+
+			@Override
+			public boolean hasNext() {
+				return _next != 0;
+			}
+
+			@Override
+			public long nextLong() {
+				if (_next == 0) {
+					throw new NoSuchElementException();
+				}
+				long current = _next;
+				_next = _repeat ? nextExecutionTimestamp(current) : 0;
+				return current;
+			}
+		};
+	}
+
+	/**
+	 * Returns the default scheduler, which is used by the static methods of this class.
+	 *
+	 * @return Scheduler object
+	 */
+	public static Scheduler defaultScheduler() {
+		return _coreScheduler;
+	}
+
+	/**
+	 * Sets the engine used by the scheduler to keep track of the scheduled tasks. Defaults to
+	 * {@link Engine#PRIORITY_QUEUE}. The engine can only be changed before scheduling the first task or after shutting
+	 * down the scheduler.
+	 *
+	 * @param engine engine to be used
+	 */
+	public static void useEngine(Engine engine) {
+		_coreScheduler.useEngine(engine);
+	}
+
+	/**
+	 * Sets the executor used to run the scheduled tasks. Defaults to a bounded pool of named worker threads, which
+	 * skips executions while all workers are busy and its queue is full. An executor set by this method is not shut
+	 * down by the scheduler.
+	 *
+	 * @param executor executor to be used
+	 */
+	public static void useExecutor(ExecutorService executor) {
+		_coreScheduler.useExecutor(executor);
+	}
+
+	/**
+	 * Runs each execution of the scheduled tasks in a new virtual thread. Best suited for tasks mostly waiting for
+	 * blocking I/O. Virtual threads require Java 21, on older versions the default pool of worker threads is used.
+	 *
+	 * @return {@code true} if virtual threads are used; {@code false} if falling back to the default pool
+	 */
+	public static boolean useVirtualThreads() {
+		return _coreScheduler.useVirtualThreads();
 	}
 
 	/**
-	 * Shuts down the scheduler. All scheduled tasks will be removed. A new scheduler will be created when adding new
-	 * tasks.
+	 * Shuts down the default scheduler. All scheduled tasks will be removed. The scheduler is started again when
+	 * adding new tasks.
 	 */
 	public static void shutdown() {
-		_coreScheduler.kill();
+		_coreScheduler.shutdown();
 	}
 
-	private long nextExecutionTimestamp() {
-		if (_nextExecution == 0 && !_usingTargetTime && !_usingTargetDate) {
+	// size of the definition written by writeDefinition()
+	static final int DEFINITION_SIZE = 26 + CronExpression.SIZE;
+
+	/**
+	 * Writes the definition of this task, i.e. everything but the task itself, its key and its next execution.
+	 *
+	 * @param buffer buffer to write to
+	 */
+	void writeDefinition(ByteBuffer buffer) {
+		buffer.putInt(_interval);
+		buffer.put((byte) (_unit == null ? -1 : _unit.ordinal()));
+		buffer.put((byte) (_targetDayOfWeek == null ? 0 : _targetDayOfWeek.getValue()));
+		buffer.put((byte) ((_repeat ? 1 : 0) | (_usingTargetDate ? 2 : 0) | (_usingTargetTime ? 4 : 0)
+				| (_cron != null ? 8 : 0)));
+		buffer.put((byte) _targetMonth);
+		buffer.put((byte) _targetDay);
+		buffer.put((byte) _targetHour);
+		buffer.put((byte) _targetMinute);
+		buffer.put((byte) _targetSecond);
+		buffer.put((byte) _misfirePolicy.ordinal());
+		buffer.put((byte) _overlapPolicy.ordinal());
+		buffer.putInt(_maxConcurrent);
+		buffer.putLong(_spread);
+		if (_cron != null) {
+			_cron.write(buffer);
+		} else {
+			buffer.position(buffer.position() + CronExpression.SIZE);
+		}
+	}
+
+	/**
+	 * Reads a definition written by {@link #writeDefinition(ByteBuffer)}.
+	 *
+	 * @param scheduler scheduler running the task
+	 * @param buffer buffer to read from
+	 * @return Schedule object without task, key and next execution
+	 */
+	static Schedule readDefinition(Scheduler scheduler, ByteBuffer buffer) {
+		int interval = buffer.getInt();
+		byte unit = buffer.get();
+		byte dayOfWeek = buffer.get();
+		byte flags = buffer.get();
+		Schedule schedule = new Schedule(scheduler, interval, (flags & 1) != 0);
+		schedule._unit = unit < 0 ? null : ChronoUnit.values()[unit];
+		schedule._targetDayOfWeek = dayOfWeek == 0 ? null : DayOfWeek.of(dayOfWeek);
+		schedule._usingTargetDate = (flags & 2) != 0;
+		schedule._usingTargetTime = (flags & 4) != 0;
+		schedule._targetMonth = buffer.get();
+		schedule._targetDay = buffer.get();
+		schedule._targetHour = buffer.get();
+		schedule._targetMinute = buffer.get();
+		schedule._targetSecond = buffer.get();
+		schedule._misfirePolicy = MisfirePolicy.values()[buffer.get()];
+		schedule._overlapPolicy = OverlapPolicy.values()[buffer.get()];
+		schedule._maxConcurrent = buffer.getInt();
+		schedule._spread = buffer.getLong();
+		if ((flags & 8) != 0) {
+			schedule._cron = CronExpression.read(buffer);
+		} else {
+			buffer.position(buffer.position() + CronExpression.SIZE);
+		}
+		return schedule;
+	}
+
+	// results of admit()
+	static final int ADMITTED = 0;
+	static final int QUEUED = 1;
+	static final int SKIPPED = 2;
+
+	/**
+	 * Admits a due execution according to the overlap policy.
+	 *
+	 * @param plannedExecution timestamp the execution has been planned for
+	 * @return {@link #ADMITTED} if the execution may run now, {@link #QUEUED} if it has been queued or
+	 * {@link #SKIPPED} if it has to be skipped
+	 */
+	synchronized int admit(long plannedExecution) {
+		if (_running < _maxConcurrent) {
+			_running++;
+			return ADMITTED;
+		}
+		if (_overlapPolicy == OverlapPolicy.QUEUE && _queuedExecution == 0) {
+			_queuedExecution = plannedExecution;
+			return QUEUED;
+		}
+		_skipped++;
+		return SKIPPED;
+	}
+
+	/**
+	 * @return number of executions skipped by {@link #admit(long)}, counted whether metrics are enabled or not
+	 */
+	synchronized long skipped() {
+		return _skipped;
+	}
+
+	/**
+	 * Releases a finished execution admitted by {@link #admit(long)}. A queued execution takes over its place.
+	 *
+	 * @return planned timestamp of the queued execution to be run next; 0 if there is none
+	 */
+	synchronized long release() {
+		long queuedExecution = _queuedExecution;
+		if (queuedExecution != 0) {
+			_queuedExecution = 0;
+			return queuedExecution;
+		}
+		_running--;
+		return 0;
+	}
+
+	/**
+	 * Releases an execution admitted by {@link #admit(long)} that could not be started, discarding a queued execution.
+	 */
+	synchronized void abort() {
+		_queuedExecution = 0;
+		_running--;
+	}
+
+	long nextExecutionTimestamp() {
+		return nextExecutionTimestamp(_nextExecution);
+	}
+
+	/**
+	 * Checks whether all nodes plan the same executions of this task, whenever they start, as needed for leases. Tasks
+	 * of seconds, minutes and hours are aligned to their interval. Tasks of days and longer as well as single executions
+	 * need a specific time set by {@link #at(String)}, a specific day of week for weeks, and an interval of one unit,
+	 * since otherwise they depend on the start of the node.
+	 *
+	 * @return {@code true} if all nodes plan the same executions; {@code false} else
+	 */
+	boolean isPlannedAlike() {
+		if (_cron != null || (_unit != null && _unit.isTimeBased())) {
+			return true;
+		}
+		if (_unit == ChronoUnit.WEEKS && !_usingTargetDayOfWeek) {
+			return false;
+		}
+		return (_usingTargetTime || _usingTargetDate) && (!_repeat || _interval == 1);
+	}
+
+	/**
+	 * Calculates the execution following the given one, without changing this task.
+	 *
+	 * @param previous timestamp of the previous execution, 0 for the first execution
+	 * @return timestamp of the next execution
+	 */
+	long nextExecutionTimestamp(long previous) {
+		if (_cron != null) {
+			// the offset of the spread is removed to find the next matching time
+			long after = previous == 0 ? _scheduler.clock().millis() : previous - spreadOffset();
+			return _cron.next(after, _scheduler.clock().getZone()) + spreadOffset();
+		} else if (previous == 0 && !_usingTargetTime && !_usingTargetDate) {
 			// first execution, but no specific date or time, choose current time
-			return System.currentTimeMillis();
-		} else if (_nextExecution == 0) {
+			long now = _scheduler.clock().millis();
+			if (_scheduler.isUsingLeases() && _unit != null && _unit.isTimeBased()) {
+				// all nodes have to plan the same executions, so align to the interval
+				long step = _interval * _unit.getDuration().toMillis();
+				now = Math.floorDiv(now + step - 1, step) * step;
+			}
+			return now + spreadOffset();
+		} else if (previous == 0) {
 			// first execution, date or time is set
 			final int DAYS_PER_WEEK = 7;
 			// align to next full second
-			ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+			ZonedDateTime now = ZonedDateTime.now(_scheduler.clock()).truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
 			ZonedDateTime next = now;
 			if (_unit == ChronoUnit.SECONDS) {
 				// nothing to do
@@ -732,14 +1143,75 @@ public class Schedule {
 			while (!next.isAfter(now)) {
 				next = next.plus(1, _unit);
 			}
-			return next.toInstant().toEpochMilli();
+			if (_scheduler.isUsingLeases() && _unit != null && _unit.isTimeBased()) {
+				// all nodes have to plan the same executions, so align to the interval while keeping the time
+				long units = Math.floorDiv(next.toInstant().toEpochMilli(), _unit.getDuration().toMillis());
+				long skipped = Math.floorMod(units, (long) _interval);
+				if (skipped != 0) {
+					next = next.plus(_interval - skipped, _unit);
+				}
+			}
+			return next.toInstant().toEpochMilli() + spreadOffset();
 		} else {
-			// next execution, just add interval
-			return ZonedDateTime.ofInstant(Instant.ofEpochMilli(_nextExecution), ZoneId.systemDefault()).plus(_interval, _unit).toInstant().toEpochMilli();
+			// the offset of the spread is kept by adding the interval
+			return plusInterval(previous);
 		}
 	}
 
-	private boolean shouldRun() {
-		return _nextExecution < System.currentTimeMillis() && _alive;
+	/**
+	 * Calculates the first execution after the given timestamp following the current one, skipping all executions
+	 * missed in between.
+	 *
+	 * @param now current timestamp
+	 * @return timestamp of the next execution in the future
+	 */
+	long nextExecutionTimestampAfter(long now) {
+		long next = nextExecutionTimestamp();
+		if (next > now) {
+			return next;
+		}
+		if (_cron != null) {
+			// jump straight to the first matching time after now
+			return _cron.next(now - spreadOffset(), _scheduler.clock().getZone()) + spreadOffset();
+		}
+		if (_unit.isTimeBased()) {
+			// skip all missed executions at once
+			long step = _interval * _unit.getDuration().toMillis();
+			return next + ((now - next) / step + 1) * step;
+		}
+		while (next <= now) {
+			next = plusInterval(next);
+		}
+		return next;
+	}
+
+	/**
+	 * Derives the offset of this task within its spread window from its key.
+	 *
+	 * @return offset in milliseconds, 0 without spread window
+	 */
+	long spreadOffset() {
+		if (_spread == 0) {
+			return 0;
+		}
+		if (_key == null) {
+			throw new ScheduleException("spread requires a key");
+		}
+		// String.hashCode() is specified, mixing its bits spreads similar keys across the whole window
+		long hash = _key.hashCode() * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 32;
+		hash *= 0xC2B2AE3D27D4EB4FL;
+		hash ^= hash >>> 29;
+		return Math.floorMod(hash, _spread);
+	}
+
+	private long plusInterval(long timestamp) {
+		if (_unit.isTimeBased()) {
+			// next execution, seconds, minutes and hours have a fixed length, so just add interval
+			return timestamp + _interval * _unit.getDuration().toMillis();
+		} else {
+			// next execution, days and longer depend on the calendar, so add interval in the local time zone
+			return ZonedDateTime.ofInstant(Instant.ofEpochMilli(timestamp), _scheduler.clock().getZone()).plus(_interval, _unit).toInstant().toEpochMilli();
+		}
 	}
 }
@@ -0,0 +1,96 @@
+package de.lefti.schedule;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the execution metrics of a scheduled task, or of all tasks of a scheduler. Metrics are only recorded
+ * while enabled by {@link Scheduler#useMetrics(boolean)}.
+ */
+public final class ScheduleMetrics {
+
+	private final long _executions;
+	private final long _failures;
+	private final long _skipped;
+	private final int _inFlight;
+	private final long _averageLatenessMillis;
+	private final long _maxLatenessMillis;
+	private final long _averageExecutionNanos;
+	private final long _maxExecutionNanos;
+
+	ScheduleMetrics(long executions, long failures, long skipped, int inFlight, long averageLatenessMillis, long maxLatenessMillis,
+	                long averageExecutionNanos, long maxExecutionNanos) {
+		_executions = executions;
+		_failures = failures;
+		_skipped = skipped;
+		_inFlight = inFlight;
+		_averageLatenessMillis = averageLatenessMillis;
+		_maxLatenessMillis = maxLatenessMillis;
+		_averageExecutionNanos = averageExecutionNanos;
+		_maxExecutionNanos = maxExecutionNanos;
+	}
+
+	/**
+	 * @return number of finished executions, including failed ones
+	 */
+	public long getExecutions() {
+		return _executions;
+	}
+
+	/**
+	 * @return number of executions that have thrown an exception
+	 */
+	public long getFailures() {
+		return _failures;
+	}
+
+	/**
+	 * @return number of executions skipped because the previous executions of the task were still running, see
+	 * {@link Schedule#onOverlap(OverlapPolicy, int)}
+	 */
+	public long getSkipped() {
+		return _skipped;
+	}
+
+	/**
+	 * @return number of executions currently running
+	 */
+	public int getInFlight() {
+		return _inFlight;
+	}
+
+	/**
+	 * @return average time between the planned and the actual start of an execution
+	 */
+	public Duration getAverageLateness() {
+		return Duration.ofMillis(_averageLatenessMillis);
+	}
+
+	/**
+	 * @return maximum time between the planned and the actual start of an execution
+	 */
+	public Duration getMaxLateness() {
+		return Duration.ofMillis(_maxLatenessMillis);
+	}
+
+	/**
+	 * @return average run time of an execution
+	 */
+	public Duration getAverageExecutionTime() {
+		return Duration.ofNanos(_averageExecutionNanos);
+	}
+
+	/**
+	 * @return maximum run time of an execution
+	 */
+	public Duration getMaxExecutionTime() {
+		return Duration.ofNanos(_maxExecutionNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "executions=" + _executions + ", failures=" + _failures + ", skipped=" + _skipped
+				+ ", inFlight=" + _inFlight
+				+ ", averageLateness=" + getAverageLateness() + ", maxLateness=" + getMaxLateness()
+				+ ", averageExecutionTime=" + getAverageExecutionTime() + ", maxExecutionTime=" + getMaxExecutionTime();
+	}
+}
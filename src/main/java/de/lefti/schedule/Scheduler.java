@@ -0,0 +1,1581 @@
+package de.lefti.schedule;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Scheduler running scheduled tasks from its own thread. Each scheduler has its own engine and executor, so that
+ * independent parts of an application can schedule their tasks without contending with each other. The static methods
+ * of {@link Schedule} are using a default scheduler.
+ * <p>
+ * The thread of a scheduler is started when the first task is scheduled. Scheduling a task does not block, new tasks
+ * are handed over to the thread of the scheduler through a lock-free queue.
+ */
+public class Scheduler {
+
+	private static final AtomicInteger _count = new AtomicInteger();
+	private static final long REJECTION_REPORT_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+	private final String _name;
+	private Engine _engine = Engine.PRIORITY_QUEUE;
+	private Supplier<ExecutorService> _executorFactory;
+	private volatile ExecutorService _executor;
+	private boolean _ownedExecutor = false;
+	private volatile Dispatcher _dispatcher;
+	// null while metrics are disabled
+	private volatile SchedulerStatistics _statistics;
+	private volatile Journal _journal;
+	private volatile Clock _clock = new DefaultClock();
+	private volatile LeaseProvider _leases;
+	private volatile Partitioning _partitioning;
+	// while simulating, the dispatcher is driven by the simulation and runs the tasks synchronously
+	private volatile boolean _simulated = false;
+	private volatile int _batchSize = 1;
+	// executions rejected by the executor, and when they have been reported last
+	private final AtomicLong _rejections = new AtomicLong();
+	private final AtomicLong _rejectionsReported = new AtomicLong(System.nanoTime() - REJECTION_REPORT_INTERVAL);
+	// tasks the dispatcher failed to handle, and when they have been reported last
+	private final AtomicLong _failures = new AtomicLong();
+	private final AtomicLong _failuresReported = new AtomicLong(System.nanoTime() - REJECTION_REPORT_INTERVAL);
+
+	/**
+	 * Creates a new scheduler with a generated name.
+	 */
+	public Scheduler() {
+		this("Scheduler-" + _count.incrementAndGet());
+	}
+
+	/**
+	 * Creates a new scheduler.
+	 *
+	 * @param name name of the scheduler, used to name its threads
+	 */
+	public Scheduler(String name) {
+		_name = name;
+		_executorFactory = () -> DefaultExecutor.create(name);
+	}
+
+	/**
+	 * Creates a scheduled task with the default interval, run by this scheduler.
+	 *
+	 * @return Schedule object
+	 */
+	public Schedule every() {
+		return new Schedule(this, 1, true);
+	}
+
+	/**
+	 * Creates a scheduled task with given interval, run by this scheduler.
+	 *
+	 * @param interval interval to be used.
+	 * @return Schedule object
+	 */
+	public Schedule every(int interval) {
+		if (interval == 1) {
+			throw new IntervalException("use every() instead");
+		}
+		if (interval < 1) {
+			throw new IntervalException("use positive interval values only");
+		}
+		return new Schedule(this, interval, true);
+	}
+
+	/**
+	 * Creates a scheduled task that is executed only once, run by this scheduler.
+	 * Use with {@link Schedule#at(String)} to specify the timestamp.
+	 *
+	 * @return Schedule object
+	 */
+	public Schedule once() {
+		return new Schedule(this, 1, false);
+	}
+
+	/**
+	 * Creates a scheduled task run at the times matching a cron expression, run by this scheduler.
+	 *
+	 * @param expression cron expression as string, see {@link CronExpression}.
+	 * @return Schedule object
+	 */
+	public Schedule cron(String expression) {
+		return cron(CronExpression.parse(expression));
+	}
+
+	/**
+	 * Creates a scheduled task run at the times matching an already parsed cron expression, run by this scheduler.
+	 *
+	 * @param expression cron expression parsed by {@link CronExpression#parse(String)}.
+	 * @return Schedule object
+	 */
+	public Schedule cron(CronExpression expression) {
+		return new Schedule(this, expression);
+	}
+
+	/**
+	 * Schedules many tasks at once. Their first executions are calculated up front, then they are handed over to the
+	 * thread of the scheduler in a single step, which adds them to the engine in one pass. This is much cheaper than
+	 * scheduling the tasks one by one, e.g. when loading a large number of tasks on startup.
+	 *
+	 * @param schedules Schedule objects created by this scheduler with their tasks set by
+	 *                  {@link Schedule#task(Runnable)}, {@link Schedule#taskAsync(Supplier)} or
+	 *                  {@link Schedule#task(TickPublisher)}
+	 */
+	public void runAll(Collection<Schedule> schedules) {
+		List<Schedule> tasks = new ArrayList<>(schedules);
+		for (Schedule task : tasks) {
+			if (task._scheduler != this) {
+				throw new ScheduleException("schedule belongs to another scheduler");
+			}
+			if (!task.hasTask()) {
+				throw new ScheduleException("task not set");
+			}
+			checkLeasable(task);
+		}
+		for (Schedule task : tasks) {
+			task._nextExecution = task.nextExecutionTimestamp();
+		}
+		Journal journal = _journal;
+		if (journal != null) {
+			for (Schedule task : tasks) {
+				if (task._key != null) {
+					journal.defined(task);
+				}
+			}
+		}
+		register(tasks);
+	}
+
+	/**
+	 * Recovers the tasks recorded by a journal and records all further changes of tasks with a key in it. The recovered
+	 * tasks continue with their next executions as recorded, executions missed in the meantime are handled according to
+	 * their misfire policies. Tasks without runnable are removed from the journal.
+	 *
+	 * @param journal journal to be used
+	 * @param tasks provides the runnable of a recovered task by its key, or {@code null} if the task is obsolete
+	 * @return recovered tasks by their keys
+	 */
+	public Map<String, Schedule> useJournal(Journal journal, Function<String, Runnable> tasks) {
+		return useJournal(journal, (key, schedule) -> schedule.task(tasks.apply(key)));
+	}
+
+	/**
+	 * Recovers the tasks recorded by a journal like {@link #useJournal(Journal, Function)}, but sets the tasks of the
+	 * recovered schedules by the given action, so asynchronous tasks and publishers can be recovered as well, e.g. by
+	 * {@link Schedule#taskAsync(Supplier)} or {@link Schedule#task(TickPublisher)}. Tasks left without task are removed
+	 * from the journal.
+	 *
+	 * @param journal journal to be used
+	 * @param tasks sets the task of a recovered schedule by its key, leaves it unset if the task is obsolete
+	 * @return recovered tasks by their keys
+	 */
+	public synchronized Map<String, Schedule> useJournal(Journal journal, BiConsumer<String, Schedule> tasks) {
+		Map<String, Schedule> recovered = journal.schedules(this);
+		Iterator<Schedule> iterator = recovered.values().iterator();
+		while (iterator.hasNext()) {
+			Schedule schedule = iterator.next();
+			tasks.accept(schedule._key, schedule);
+			if (!schedule.hasTask()) {
+				journal.removed(schedule);
+				iterator.remove();
+			}
+		}
+		_journal = journal;
+		register(new ArrayList<>(recovered.values()));
+		return recovered;
+	}
+
+	/**
+	 * Writes all tasks with a key to a binary snapshot, which can be restored by {@link #restore(Path, Function)},
+	 * e.g. before shutting down the scheduler. The snapshot is taken by the thread of the scheduler in a single step,
+	 * the file is replaced at once when complete.
+	 *
+	 * @param file file of the snapshot
+	 * @throws IOException if the file cannot be written
+	 */
+	public void snapshot(Path file) throws IOException {
+		Snapshot snapshot = new Snapshot();
+		Dispatcher dispatcher = _dispatcher;
+		if (dispatcher != null) {
+			dispatcher.call(() -> dispatcher.snapshot(snapshot));
+		}
+		snapshot.write(file);
+	}
+
+	/**
+	 * Restores the tasks of a snapshot written by {@link #snapshot(Path)}. The restored tasks continue with their next
+	 * executions as recorded, executions missed in the meantime are handled according to their misfire policies.
+	 *
+	 * @param file file of the snapshot
+	 * @param tasks provides the runnable of a restored task by its key, or {@code null} if the task is obsolete
+	 * @return restored tasks by their keys
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public Map<String, Schedule> restore(Path file, Function<String, Runnable> tasks) throws IOException {
+		return restore(file, (key, schedule) -> schedule.task(tasks.apply(key)));
+	}
+
+	/**
+	 * Restores the tasks of a snapshot like {@link #restore(Path, Function)}, but sets the tasks of the restored
+	 * schedules by the given action, so asynchronous tasks and publishers can be restored as well, e.g. by
+	 * {@link Schedule#taskAsync(Supplier)} or {@link Schedule#task(TickPublisher)}.
+	 *
+	 * @param file file of the snapshot
+	 * @param tasks sets the task of a restored schedule by its key, leaves it unset if the task is obsolete
+	 * @return restored tasks by their keys
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public Map<String, Schedule> restore(Path file, BiConsumer<String, Schedule> tasks) throws IOException {
+		Map<String, Schedule> restored = Snapshot.read(this, file);
+		List<Schedule> schedules = new ArrayList<>(restored.size());
+		Iterator<Schedule> iterator = restored.values().iterator();
+		while (iterator.hasNext()) {
+			Schedule schedule = iterator.next();
+			tasks.accept(schedule._key, schedule);
+			if (!schedule.hasTask()) {
+				iterator.remove();
+			} else {
+				schedules.add(schedule);
+			}
+		}
+		Journal journal = _journal;
+		if (journal != null) {
+			for (Schedule schedule : schedules) {
+				journal.defined(schedule);
+			}
+		}
+		register(schedules);
+		return restored;
+	}
+
+	/**
+	 * Hands over tasks with their next executions already set to the thread of the scheduler.
+	 *
+	 * @param tasks tasks to be scheduled
+	 */
+	private void register(List<Schedule> tasks) {
+		if (tasks.isEmpty()) {
+			return;
+		}
+		Dispatcher dispatcher = _dispatcher;
+		if (dispatcher == null) {
+			dispatcher = start();
+		}
+		dispatcher.registerAll(tasks);
+	}
+
+	/**
+	 * Sets the engine used to keep track of the scheduled tasks. Defaults to {@link Engine#PRIORITY_QUEUE}. The engine
+	 * can only be changed before scheduling the first task or after shutting down the scheduler.
+	 *
+	 * @param engine engine to be used
+	 * @return Scheduler object
+	 */
+	public synchronized Scheduler useEngine(Engine engine) {
+		if (_dispatcher != null) {
+			throw new ScheduleException("engine can only be changed while the scheduler is not running");
+		}
+		_engine = engine;
+		return this;
+	}
+
+	/**
+	 * Sets the clock used to calculate and check the executions of the scheduled tasks, including its time zone.
+	 * Defaults to the system clock in the default time zone. The clock can only be changed before scheduling the first
+	 * task or after shutting down the scheduler.
+	 *
+	 * @param clock clock to be used
+	 * @return Scheduler object
+	 */
+	public synchronized Scheduler useClock(Clock clock) {
+		if (_dispatcher != null) {
+			throw new ScheduleException("clock can only be changed while the scheduler is not running");
+		}
+		_clock = clock;
+		return this;
+	}
+
+	Clock clock() {
+		return _clock;
+	}
+
+	/**
+	 * Runs each execution of a task with a key on only one of several nodes running the same tasks. Before running an
+	 * execution, the node acquires its lease from the given provider; if another node got it, the execution is
+	 * skipped. All nodes must plan the same executions, so tasks of seconds, minutes and hours start at the next multiple
+	 * of their interval instead of right away, at the time given by {@link Schedule#at(String)} within it. Tasks of days
+	 * and longer as well as single executions must be given a specific time by {@link Schedule#at(String)} and repeat
+	 * every single unit, or use a cron expression; other tasks with a key are rejected. Tasks without key are run on
+	 * every node. Leases can only be set before scheduling the first task, which would have been planned for this node
+	 * only.
+	 *
+	 * @param leases provider of the leases, {@code null} to run all executions on this node
+	 * @return Scheduler object
+	 */
+	public synchronized Scheduler useLeases(LeaseProvider leases) {
+		if (size() != 0) {
+			throw new ScheduleException("leases can only be set before scheduling the first task");
+		}
+		_leases = leases;
+		return this;
+	}
+
+	/**
+	 * Splits the tasks with a key across the nodes of a cluster. Each node schedules all tasks, but only keeps the
+	 * tasks it owns according to the given ring. Of the others, only their definitions and next executions are kept,
+	 * like in a journal, without their runnables and without calculating their executions. Call this method again with a
+	 * new ring whenever the members of the cluster change; tasks now owned by this node are rebuilt from their
+	 * definitions and continue with their next execution in the future, tasks owned by another node are dropped. A task
+	 * replaces an earlier one with the same key. Tasks without key are run on every node.
+	 *
+	 * @param node name of this node in the ring
+	 * @param ring ring of all nodes, {@code null} to run all tasks on this node
+	 * @param tasks provides the runnable of a task taken over by its key, or {@code null} if the task is obsolete
+	 * @return Scheduler object
+	 */
+	public Scheduler usePartitioning(String node, NodeRing ring, Function<String, Runnable> tasks) {
+		return usePartitioning(node, ring, (key, schedule) -> schedule.task(tasks.apply(key)));
+	}
+
+	/**
+	 * Splits the tasks with a key across the nodes of a cluster like {@link #usePartitioning(String, NodeRing,
+	 * Function)}, but sets the tasks of the schedules taken over by the given action, so asynchronous tasks and
+	 * publishers can be taken over as well, e.g. by {@link Schedule#taskAsync(Supplier)} or
+	 * {@link Schedule#task(TickPublisher)}.
+	 *
+	 * @param node name of this node in the ring
+	 * @param ring ring of all nodes, {@code null} to run all tasks on this node
+	 * @param tasks sets the task of a schedule taken over by its key, leaves it unset if the task is obsolete
+	 * @return Scheduler object
+	 */
+	public Scheduler usePartitioning(String node, NodeRing ring, BiConsumer<String, Schedule> tasks) {
+		if (tasks == null) {
+			throw new ScheduleException("tasks must not be null");
+		}
+		Dispatcher dispatcher;
+		synchronized (this) {
+			_partitioning = new Partitioning(node, ring, tasks);
+			dispatcher = _dispatcher;
+		}
+		// not synchronized, the dispatcher may need this scheduler to hand over executions in the meantime; it applies
+		// the latest partitioning anyway, so concurrent calls end up with the same result
+		if (dispatcher != null) {
+			dispatcher.call(dispatcher::repartition);
+		}
+		return this;
+	}
+
+	boolean isUsingLeases() {
+		return _leases != null;
+	}
+
+	/**
+	 * Starts a simulation of this scheduler in virtual time. Instead of running its own thread, the scheduler is driven
+	 * by the simulation, which runs the due tasks synchronously. The simulation ends when shutting down the scheduler.
+	 * It can only be started before scheduling the first task or after shutting down the scheduler.
+	 *
+	 * @param start virtual time to start at
+	 * @param zone time zone of the virtual time
+	 * @return Simulation object
+	 */
+	public synchronized Simulation simulate(Instant start, ZoneId zone) {
+		if (_dispatcher != null) {
+			throw new ScheduleException("simulation can only be started while the scheduler is not running");
+		}
+		VirtualClock clock = new VirtualClock(start.toEpochMilli(), zone);
+		_clock = clock;
+		_simulated = true;
+		// the thread of the dispatcher is never started
+		_dispatcher = new Dispatcher(_engine.createTaskQueue(clock.millis()));
+		return new Simulation(this, clock);
+	}
+
+	synchronized long advance(VirtualClock clock, long target, boolean next) {
+		if (!_simulated || _clock != clock) {
+			throw new ScheduleException("simulation has ended");
+		}
+		return _dispatcher.advance(clock, target, next);
+	}
+
+	/**
+	 * Sets the executor used to run the scheduled tasks. Defaults to a bounded pool of named worker threads, which
+	 * skips executions while all workers are busy and its queue is full. An executor set by this method is not shut
+	 * down by the scheduler.
+	 *
+	 * @param executor executor to be used
+	 * @return Scheduler object
+	 */
+	public synchronized Scheduler useExecutor(ExecutorService executor) {
+		shutdownOwnedExecutor();
+		_executor = executor;
+		return this;
+	}
+
+	/**
+	 * Runs each execution of the scheduled tasks in a new virtual thread. Best suited for tasks mostly waiting for
+	 * blocking I/O. Virtual threads require Java 21, on older versions the default pool of worker threads is used.
+	 *
+	 * @return {@code true} if virtual threads are used; {@code false} if falling back to the default pool
+	 */
+	public synchronized boolean useVirtualThreads() {
+		shutdownOwnedExecutor();
+		_executor = null;
+		if (VirtualThreads.isSupported()) {
+			_executorFactory = () -> VirtualThreads.newExecutor(_name);
+			return true;
+		}
+		_executorFactory = () -> DefaultExecutor.create(_name);
+		return false;
+	}
+
+	/**
+	 * Hands over the executions due at the same time in batches of up to the given size, each batch run one after
+	 * another by a single worker. This saves the handover of each execution when many short tasks are due at once, e.g.
+	 * at the start of each second; a slow execution delays the others of its batch though. Defaults to 1, i.e. each
+	 * execution is handed over on its own.
+	 *
+	 * @param maxSize maximum number of executions per batch
+	 * @return Scheduler object
+	 */
+	public Scheduler useBatching(int maxSize) {
+		if (maxSize < 1) {
+			throw new ScheduleException("use positive batch sizes only");
+		}
+		_batchSize = maxSize;
+		return this;
+	}
+
+	/**
+	 * Enables or disables recording metrics of the executions, see {@link #metrics()} and {@link Schedule#metrics()}.
+	 * Metrics are disabled by default, which leaves the executions untouched. Enabling them again starts with fresh
+	 * metrics for the scheduler, the metrics of the tasks are kept.
+	 *
+	 * @param enabled {@code true} to record metrics; {@code false} else
+	 * @return Scheduler object
+	 */
+	public synchronized Scheduler useMetrics(boolean enabled) {
+		if (!enabled) {
+			_statistics = null;
+		} else if (_statistics == null) {
+			_statistics = new SchedulerStatistics();
+		}
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if metrics are recorded; {@code false} else
+	 */
+	public boolean isUsingMetrics() {
+		return _statistics != null;
+	}
+
+	/**
+	 * Returns a snapshot of the metrics of this scheduler. Besides the number of scheduled tasks, metrics are only
+	 * recorded while enabled by {@link #useMetrics(boolean)}.
+	 *
+	 * @return SchedulerMetrics object
+	 */
+	public SchedulerMetrics metrics() {
+		SchedulerStatistics statistics = _statistics;
+		if (statistics == null) {
+			return new SchedulerMetrics(size(), 0, 0, new ScheduleMetrics(0, 0, 0, 0, 0, 0, 0, 0));
+		}
+		return statistics.snapshot(size());
+	}
+
+	/**
+	 * Registers a {@link SchedulerMXBean} of this scheduler at the platform MBean server, named
+	 * {@code de.lefti.schedule:type=Scheduler,name=<name of the scheduler>}.
+	 *
+	 * @return name of the registered MBean
+	 */
+	public ObjectName registerMBean() {
+		try {
+			ObjectName name = mBeanName();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new SchedulerManagement(this), name);
+			}
+			return name;
+		} catch (JMException e) {
+			throw new ScheduleException("could not register MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the MBean registered by {@link #registerMBean()} from the platform MBean server.
+	 */
+	public void unregisterMBean() {
+		try {
+			ObjectName name = mBeanName();
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new ScheduleException("could not unregister MBean: " + e.getMessage());
+		}
+	}
+
+	private ObjectName mBeanName() throws JMException {
+		return new ObjectName("de.lefti.schedule:type=Scheduler,name=" + ObjectName.quote(_name));
+	}
+
+	/**
+	 * @return name of the scheduler
+	 */
+	public String getName() {
+		return _name;
+	}
+
+	/**
+	 * Shuts down the scheduler. All scheduled tasks will be removed. The scheduler is started again when adding new
+	 * tasks.
+	 */
+	public synchronized void shutdown() {
+		if (_dispatcher != null) {
+			_dispatcher.stop();
+			_dispatcher = null;
+		}
+		SchedulerStatistics statistics = _statistics;
+		if (statistics != null) {
+			statistics.shutdown();
+		}
+		if (_simulated) {
+			_simulated = false;
+			_clock = new DefaultClock();
+		}
+		shutdownOwnedExecutor();
+	}
+
+	void addTask(Schedule task) {
+		checkLeasable(task);
+		Journal journal = _journal;
+		if (journal != null && task._key != null) {
+			journal.defined(task);
+		}
+		Dispatcher dispatcher = _dispatcher;
+		if (dispatcher == null) {
+			dispatcher = start();
+		}
+		dispatcher.register(task);
+	}
+
+	/**
+	 * Rejects a new task with a key whose executions are not planned alike on all nodes while using leases, see
+	 * {@link #useLeases(LeaseProvider)}.
+	 */
+	private void checkLeasable(Schedule task) {
+		if (_leases != null && task._key != null && !task.isPlannedAlike()) {
+			throw new ScheduleException("task " + task._key + " is not planned alike on all nodes, as needed for leases");
+		}
+	}
+
+	void removeTask(Schedule task) {
+		Dispatcher dispatcher = _dispatcher;
+		if (dispatcher != null) {
+			dispatcher.unregister(task);
+		}
+		Journal journal = _journal;
+		if (journal != null && task._key != null) {
+			journal.removed(task);
+		}
+	}
+
+	/**
+	 * Returns the number of tasks held by this scheduler. Cancelled and finished tasks are removed as soon as the thread
+	 * of the scheduler picks up the change, so this is the number of live tasks shortly after.
+	 *
+	 * @return number of scheduled tasks
+	 */
+	public int size() {
+		Dispatcher dispatcher = _dispatcher;
+		return dispatcher == null ? 0 : dispatcher._size.get();
+	}
+
+	/**
+	 * Returns the upcoming executions of all scheduled tasks in the order of their timestamps, e.g. to forecast the load
+	 * over the next hours. The executions are calculated lazily from the tasks scheduled when calling this method,
+	 * without changing them. The stream is infinite as long as repeated tasks are scheduled, use e.g.
+	 * {@link Stream#takeWhile(java.util.function.Predicate)} to limit it to a window.
+	 *
+	 * @return Stream object
+	 */
+	public Stream<UpcomingExecution> upcoming() {
+		Dispatcher dispatcher = _dispatcher;
+		if (dispatcher == null) {
+			return Stream.empty();
+		}
+		PriorityQueue<Forecast> forecasts = new PriorityQueue<>();
+		dispatcher.call(() -> {
+			// pick up tasks registered just before, while simulating nobody else does
+			dispatcher.drain();
+			dispatcher._scheduledTasks.forEach(task ->
+					forecasts.add(new Forecast(task, task.upcoming(task._nextExecution))));
+		});
+		Iterator<UpcomingExecution> executions = new Iterator<UpcomingExecution>() {
+			@Override
+			public boolean hasNext() {
+				return !forecasts.isEmpty();
+			}
+
+			@Override
+			public UpcomingExecution next() {
+				Forecast forecast = forecasts.poll();
+				if (forecast == null) {
+					throw new NoSuchElementException();
+				}
+				UpcomingExecution execution = new UpcomingExecution(forecast._task, forecast._next);
+				if (forecast.advance()) {
+					forecasts.add(forecast);
+				}
+				return execution;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(executions,
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private synchronized Dispatcher start() {
+		if (_dispatcher == null) {
+			_dispatcher = new Dispatcher(_engine.createTaskQueue(_clock.millis()));
+			_dispatcher._thread.start();
+		}
+		return _dispatcher;
+	}
+
+	/**
+	 * Hands over an execution to the executor. Executions of a task with a key need a lease while using leases.
+	 * Executions of a task with a limit of running executions are guarded, so that a queued execution is submitted when
+	 * they have finished.
+	 *
+	 * @param task scheduled task
+	 * @param plannedExecution timestamp the execution has been planned for
+	 */
+	private void submit(Schedule task, long plannedExecution) {
+		Runnable runnable = prepare(task, plannedExecution);
+		if (runsInline(task)) {
+			try {
+				runnable.run();
+			} catch (RuntimeException e) {
+				// keep going, just like a worker thread would keep running
+				e.printStackTrace();
+			}
+			return;
+		}
+		try {
+			executor().execute(runnable);
+		} catch (RuntimeException e) {
+			rejected(task, runnable, e);
+		}
+	}
+
+	/**
+	 * Checks whether the executions of a task are run by the calling thread instead of the executor. This applies to all
+	 * tasks while simulating, and to the ticks of a publisher, which are just handed over to its subscriptions instead of
+	 * starting a thread per tick. Ticks needing a lease are handed over to the executor though, acquiring it may block.
+	 *
+	 * @param task scheduled task
+	 * @return {@code true} if the executions are run by the calling thread; {@code false} else
+	 */
+	private boolean runsInline(Schedule task) {
+		return _simulated || (task._publisher != null && (_leases == null || task._key == null));
+	}
+
+	/**
+	 * Wraps the runnable of a task for an execution, see {@link #submit(Schedule, long)}.
+	 *
+	 * @param task scheduled task
+	 * @param plannedExecution timestamp the execution has been planned for
+	 * @return runnable to be handed over to the executor
+	 */
+	private Runnable prepare(Schedule task, long plannedExecution) {
+		if (task._asyncTask != null) {
+			return prepareAsync(task, plannedExecution);
+		}
+		SchedulerStatistics statistics = _statistics;
+		Runnable runnable = task._task;
+		TickPublisher publisher = task._publisher;
+		if (publisher != null) {
+			Clock clock = _clock;
+			runnable = () -> publisher.publish(new Tick(task, plannedExecution, clock.millis()));
+		}
+		if (statistics != null) {
+			runnable = statistics.instrument(task, runnable, plannedExecution, _clock);
+		}
+		LeaseProvider leases = _leases;
+		if (leases != null && task._key != null) {
+			runnable = new LeasedExecution(leases, task._key, plannedExecution, runnable);
+		}
+		if (task._overlapPolicy != OverlapPolicy.ALLOW) {
+			runnable = new GuardedExecution(task, runnable);
+		}
+		return statistics != null ? statistics.handOver(runnable) : runnable;
+	}
+
+	/**
+	 * Wraps an asynchronous task for an execution, just like {@link #prepare(Schedule, long)}. The steps following an
+	 * execution are chained to the completion of its stage.
+	 *
+	 * @param task scheduled task
+	 * @param plannedExecution timestamp the execution has been planned for
+	 * @return runnable starting the execution
+	 */
+	private Runnable prepareAsync(Schedule task, long plannedExecution) {
+		Supplier<? extends CompletionStage<?>> asyncTask = task._asyncTask;
+		Supplier<CompletionStage<?>> execution = () -> {
+			CompletionStage<?> stage = asyncTask.get();
+			if (stage == null) {
+				throw new ScheduleException("asynchronous task returned no stage");
+			}
+			return stage;
+		};
+		SchedulerStatistics statistics = _statistics;
+		if (statistics != null) {
+			execution = statistics.instrument(task, execution, plannedExecution, _clock);
+		}
+		LeaseProvider leases = _leases;
+		if (leases != null && task._key != null) {
+			Supplier<CompletionStage<?>> leased = execution;
+			execution = () -> LeasedExecution.acquire(leases, task._key, plannedExecution) ? leased.get()
+					: CompletableFuture.completedFuture(null);
+		}
+		if (task._overlapPolicy != OverlapPolicy.ALLOW) {
+			Supplier<CompletionStage<?>> guarded = execution;
+			execution = () -> {
+				CompletionStage<?> stage;
+				try {
+					stage = guarded.get();
+				} catch (RuntimeException | Error e) {
+					finished(task);
+					throw e;
+				}
+				return stage.whenComplete((result, failure) -> finished(task));
+			};
+		}
+		Supplier<CompletionStage<?>> started = execution;
+		Runnable runnable = () -> started.get().whenComplete((result, failure) -> {
+			if (failure != null) {
+				// reported like a failure of a task run by a worker thread
+				failure.printStackTrace();
+			}
+		});
+		return statistics != null ? statistics.handOver(runnable) : runnable;
+	}
+
+	/**
+	 * Releases a finished execution of a task with a limit of running executions, submitting the queued execution
+	 * taking over its place.
+	 *
+	 * @param task scheduled task
+	 */
+	private void finished(Schedule task) {
+		long queuedExecution = task.release();
+		if (queuedExecution != 0) {
+			if (task._alive && _dispatcher != null) {
+				submit(task, queuedExecution);
+			} else {
+				// cancelled or shut down in the meantime
+				task.abort();
+			}
+		}
+	}
+
+	/**
+	 * Skips an execution rejected by the saturated executor, or by an executor failing otherwise.
+	 */
+	private void rejected(Schedule task, Runnable runnable, RuntimeException e) {
+		SchedulerStatistics statistics = _statistics;
+		if (statistics != null) {
+			statistics.rejected(runnable);
+		}
+		if (task._overlapPolicy != OverlapPolicy.ALLOW) {
+			task.abort();
+		}
+		// a saturated executor rejects many executions in a row, so they are reported once a minute at most
+		report("executions rejected by the executor", _rejections, _rejectionsReported, e);
+	}
+
+	/**
+	 * Reports a task the dispatcher failed to register, reschedule or hand over. The dispatcher carries on with the
+	 * other tasks.
+	 */
+	private void failed(RuntimeException e) {
+		// a broken task or journal fails on every attempt, so the failures are reported once a minute at most
+		report("tasks failed to dispatch", _failures, _failuresReported, e);
+	}
+
+	private void report(String problem, AtomicLong count, AtomicLong lastReported, RuntimeException e) {
+		long problems = count.incrementAndGet();
+		long now = System.nanoTime();
+		long reported = lastReported.get();
+		if (now - reported >= REJECTION_REPORT_INTERVAL && lastReported.compareAndSet(reported, now)) {
+			System.err.println(_name + ": " + problem + " so far: " + problems);
+			e.printStackTrace();
+		}
+	}
+
+	private ExecutorService executor() {
+		ExecutorService executor = _executor;
+		return executor != null ? executor : createExecutor();
+	}
+
+	private synchronized ExecutorService createExecutor() {
+		if (_executor == null) {
+			_executor = _executorFactory.get();
+			_ownedExecutor = true;
+		}
+		return _executor;
+	}
+
+	private void shutdownOwnedExecutor() {
+		if (_ownedExecutor) {
+			// running tasks are finished, but the executor is not used any more
+			_executor.shutdown();
+			_executor = null;
+			_ownedExecutor = false;
+		}
+	}
+
+	/**
+	 * System clock in the default time zone, which may be changed while the application is running.
+	 */
+	private static final class DefaultClock extends Clock {
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneId.systemDefault();
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return Clock.system(zone);
+		}
+
+		@Override
+		public long millis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.now();
+		}
+	}
+
+	/**
+	 * Upcoming executions of a task, ordered by the next one.
+	 */
+	private static final class Forecast implements Comparable<Forecast> {
+		private final Schedule _task;
+		private final PrimitiveIterator.OfLong _executions;
+		private long _next;
+
+		private Forecast(Schedule task, PrimitiveIterator.OfLong executions) {
+			_task = task;
+			_executions = executions;
+			_next = executions.nextLong();
+		}
+
+		private boolean advance() {
+			if (!_executions.hasNext()) {
+				return false;
+			}
+			_next = _executions.nextLong();
+			return true;
+		}
+
+		@Override
+		public int compareTo(Forecast other) {
+			return Long.compare(_next, other._next);
+		}
+	}
+
+	/**
+	 * Name of this node and the ring deciding which tasks it owns, {@code null} if it owns all tasks.
+	 */
+	private static final class Partitioning {
+		private final String _node;
+		private final NodeRing _ring;
+		// rebuilds the tasks taken over
+		private final BiConsumer<String, Schedule> _tasks;
+
+		private Partitioning(String node, NodeRing ring, BiConsumer<String, Schedule> tasks) {
+			_node = node;
+			_ring = ring;
+			_tasks = tasks;
+		}
+
+		private boolean owns(String key) {
+			return _ring == null || _node.equals(_ring.owner(key));
+		}
+	}
+
+	/**
+	 * Task with a key owned by another node, kept as its definition and next execution.
+	 */
+	private static final class Parked {
+		private final byte[] _definition;
+		private final long _id;
+
+		private Parked(Schedule task) {
+			ByteBuffer buffer = ByteBuffer.allocate(Schedule.DEFINITION_SIZE + 8);
+			task.writeDefinition(buffer);
+			buffer.putLong(task._nextExecution);
+			_definition = buffer.array();
+			_id = task._id;
+		}
+
+		/**
+		 * Rebuilds the task, identified by the id of the original one.
+		 *
+		 * @return rebuilt task, without task if the given action has not set one
+		 */
+		private Schedule rebuild(Scheduler scheduler, String key, BiConsumer<String, Schedule> tasks) {
+			ByteBuffer buffer = ByteBuffer.wrap(_definition);
+			Schedule task = Schedule.readDefinition(scheduler, buffer);
+			task._key = key;
+			task._nextExecution = buffer.getLong();
+			task._id = _id;
+			tasks.accept(key, task);
+			return task;
+		}
+	}
+
+	/**
+	 * Execution of a task that is only run if this node acquires its lease.
+	 */
+	private static final class LeasedExecution implements Runnable {
+		private final LeaseProvider _leases;
+		private final String _key;
+		private final long _plannedExecution;
+		private final Runnable _runnable;
+
+		private LeasedExecution(LeaseProvider leases, String key, long plannedExecution, Runnable runnable) {
+			_leases = leases;
+			_key = key;
+			_plannedExecution = plannedExecution;
+			_runnable = runnable;
+		}
+
+		@Override
+		public void run() {
+			if (acquire(_leases, _key, _plannedExecution)) {
+				_runnable.run();
+			}
+		}
+
+		/**
+		 * Acquires the lease of an execution. The execution is not recorded by the metrics if another node runs it.
+		 *
+		 * @return {@code true} if this node may run the execution; {@code false} else
+		 */
+		private static boolean acquire(LeaseProvider leases, String key, long plannedExecution) {
+			boolean acquired;
+			try {
+				acquired = leases.tryAcquire(key, plannedExecution);
+			} catch (RuntimeException e) {
+				// rather skip the execution than risk running it on several nodes
+				e.printStackTrace();
+				acquired = false;
+			}
+			return acquired;
+		}
+	}
+
+	/**
+	 * Execution of a task with a limit of running executions. Releases its place when finished, or submits the queued
+	 * execution taking over its place.
+	 */
+	private final class GuardedExecution implements Runnable {
+		private final Schedule _task;
+		private final Runnable _runnable;
+
+		private GuardedExecution(Schedule task, Runnable runnable) {
+			_task = task;
+			_runnable = runnable;
+		}
+
+		@Override
+		public void run() {
+			try {
+				_runnable.run();
+			} finally {
+				finished(_task);
+			}
+		}
+	}
+
+	/**
+	 * Executions due in the same wakeup of the dispatcher, run one after another by a single worker.
+	 */
+	private static final class Batch implements Runnable {
+		private final Schedule[] _tasks;
+		private final Runnable[] _runnables;
+		private int _size = 0;
+
+		private Batch(int capacity) {
+			_tasks = new Schedule[capacity];
+			_runnables = new Runnable[capacity];
+		}
+
+		private boolean add(Schedule task, Runnable runnable) {
+			_tasks[_size] = task;
+			_runnables[_size] = runnable;
+			return ++_size == _tasks.length;
+		}
+
+		@Override
+		public void run() {
+			Thread thread = Thread.currentThread();
+			for (int i = 0; i < _size; i++) {
+				try {
+					_runnables[i].run();
+				} catch (Throwable e) {
+					// fail this execution only, just like running it on its own
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Thread of a running scheduler. Only this thread accesses the task queue, new and cancelled tasks are handed over
+	 * by lock-free queues. A shut down scheduler starts a new dispatcher when adding new tasks.
+	 */
+	private final class Dispatcher implements Runnable {
+		private final TaskQueue _scheduledTasks;
+		private final Queue<Schedule> _registrations = new ConcurrentLinkedQueue<>();
+		private final Queue<List<Schedule>> _batchRegistrations = new ConcurrentLinkedQueue<>();
+		private final Queue<Schedule> _cancellations = new ConcurrentLinkedQueue<>();
+		// actions to be run by the thread of the dispatcher while all tasks are in the task queue
+		private final Queue<FutureTask<?>> _requests = new ConcurrentLinkedQueue<>();
+		// tasks registered and not yet removed again, counted at registration and at removal from the task queue
+		private final AtomicInteger _size = new AtomicInteger();
+		private final Thread _thread;
+		private volatile boolean _alive = true;
+		// deadline the dispatcher is sleeping until, Long.MIN_VALUE while it is awake
+		private volatile long _sleepUntil = Long.MIN_VALUE;
+
+		// partitioning applied to the tasks; while partitioning, the tasks with a key owned by this node and the
+		// definitions of the others
+		private Partitioning _partitioning = Scheduler.this._partitioning;
+		private final Map<String, Schedule> _owned = new HashMap<>();
+		private final Map<String, Parked> _parked = new HashMap<>();
+		// executions due in the current wakeup not handed over yet
+		private Batch _batch;
+
+		private Dispatcher(TaskQueue scheduledTasks) {
+			_scheduledTasks = scheduledTasks;
+			_thread = new Thread(this, _name);
+		}
+
+		private boolean isPartitioning() {
+			return _partitioning != null && _partitioning._ring != null;
+		}
+
+		/**
+		 * Checks whether a registered task is owned by this node, keeping track of it while partitioning. The task
+		 * replaces an earlier one with the same key, a task owned by another node is parked.
+		 *
+		 * @param task live task
+		 * @return {@code true} if the task is owned by this node; {@code false} else
+		 */
+		private boolean accept(Schedule task) {
+			if (task._key == null || !isPartitioning()) {
+				return true;
+			}
+			Schedule previous = _owned.remove(task._key);
+			if (previous != null && previous != task) {
+				previous._alive = false;
+				if (_scheduledTasks.remove(previous)) {
+					_size.decrementAndGet();
+				}
+			}
+			_parked.remove(task._key);
+			if (_partitioning.owns(task._key)) {
+				_owned.put(task._key, task);
+				return true;
+			}
+			_parked.put(task._key, new Parked(task));
+			return false;
+		}
+
+		/**
+		 * Accepts a registered task like {@link #accept(Schedule)}, but drops a task failing to be accepted.
+		 *
+		 * @param task live task
+		 * @return {@code true} if the task is owned by this node; {@code false} else
+		 */
+		private boolean accepts(Schedule task) {
+			try {
+				return accept(task);
+			} catch (RuntimeException e) {
+				task._alive = false;
+				failed(e);
+				return false;
+			}
+		}
+
+		/**
+		 * Stops keeping track of a finished or cancelled task. The task may be the original of a task rebuilt when
+		 * taking it over, the rebuilt one is cancelled then.
+		 *
+		 * @param task finished or cancelled task
+		 */
+		private void forget(Schedule task) {
+			if (task._key == null || !isPartitioning()) {
+				return;
+			}
+			Schedule owned = _owned.get(task._key);
+			if (owned != null && owned._id == task._id) {
+				_owned.remove(task._key);
+				if (owned != task) {
+					owned._alive = false;
+					if (_scheduledTasks.remove(owned)) {
+						_size.decrementAndGet();
+					}
+				}
+			}
+			Parked parked = _parked.get(task._key);
+			if (parked != null && parked._id == task._id) {
+				_parked.remove(task._key);
+			}
+		}
+
+		/**
+		 * Applies the latest partitioning of the scheduler, taking over and handing over the tasks that change their
+		 * owner.
+		 */
+		private void repartition() {
+			boolean partitioned = isPartitioning();
+			_partitioning = Scheduler.this._partitioning;
+			if (!partitioned) {
+				if (!isPartitioning()) {
+					return;
+				}
+				// all tasks have been owned, so they are in the task queue
+				List<Schedule> keyed = new ArrayList<>();
+				_scheduledTasks.forEach(task -> {
+					if (task._key != null) {
+						keyed.add(task);
+					}
+				});
+				for (Schedule task : keyed) {
+					_scheduledTasks.remove(task);
+					_size.decrementAndGet();
+				}
+				for (Schedule task : keyed) {
+					if (task._alive && accept(task)) {
+						_scheduledTasks.add(task);
+						_size.incrementAndGet();
+					}
+				}
+				return;
+			}
+			// rebuild the tasks taken over before parking the tasks handed over
+			List<Schedule> takenOver = new ArrayList<>();
+			Iterator<Map.Entry<String, Parked>> parked = _parked.entrySet().iterator();
+			while (parked.hasNext()) {
+				Map.Entry<String, Parked> entry = parked.next();
+				if (!_partitioning.owns(entry.getKey())) {
+					continue;
+				}
+				parked.remove();
+				Schedule task = entry.getValue().rebuild(Scheduler.this, entry.getKey(), _partitioning._tasks);
+				if (task.hasTask()) {
+					takenOver.add(task);
+				} else {
+					// obsolete, just like a task without runnable in the journal
+					Journal journal = _journal;
+					if (journal != null) {
+						journal.removed(task);
+					}
+				}
+			}
+			Iterator<Schedule> owned = _owned.values().iterator();
+			while (owned.hasNext()) {
+				Schedule task = owned.next();
+				if (!task._alive) {
+					owned.remove();
+				} else if (!_partitioning.owns(task._key)) {
+					owned.remove();
+					if (_scheduledTasks.remove(task)) {
+						_size.decrementAndGet();
+					}
+					_parked.put(task._key, new Parked(task));
+				}
+			}
+			long now = _clock.millis();
+			for (Schedule task : takenOver) {
+				// continue with the next execution in the future, the previous owner has run the ones before
+				if (task._repeat && task._nextExecution <= now) {
+					task._nextExecution = task.nextExecutionTimestampAfter(now);
+				}
+				_scheduledTasks.add(task);
+				_size.incrementAndGet();
+				_owned.put(task._key, task);
+			}
+			if (!isPartitioning()) {
+				_owned.clear();
+				_parked.clear();
+			}
+		}
+
+		/**
+		 * Adds all tasks with a key to a snapshot, including the ones parked for other nodes while partitioning.
+		 *
+		 * @param snapshot snapshot to add to
+		 */
+		private void snapshot(Snapshot snapshot) {
+			if (isPartitioning()) {
+				_owned.values().forEach(snapshot::add);
+				_parked.forEach((key, parked) -> snapshot.add(key, parked._definition));
+			} else {
+				_scheduledTasks.forEach(snapshot::add);
+			}
+		}
+
+		private void register(Schedule task) {
+			_size.incrementAndGet();
+			_registrations.offer(task);
+			// only wake up if the task is due before the dispatcher would wake up anyway
+			if (task._nextExecution < _sleepUntil) {
+				LockSupport.unpark(_thread);
+			}
+		}
+
+		private void registerAll(List<Schedule> tasks) {
+			_size.addAndGet(tasks.size());
+			_batchRegistrations.offer(tasks);
+			long nextExecution = Long.MAX_VALUE;
+			for (Schedule task : tasks) {
+				nextExecution = Math.min(nextExecution, task._nextExecution);
+			}
+			if (nextExecution < _sleepUntil) {
+				LockSupport.unpark(_thread);
+			}
+		}
+
+		private void unregister(Schedule task) {
+			_cancellations.offer(task);
+			// wake up to release the task; while awake, the dispatcher checks the cancellations again before sleeping
+			if (_sleepUntil != Long.MIN_VALUE) {
+				LockSupport.unpark(_thread);
+			}
+		}
+
+		/**
+		 * Runs an action by the thread of the dispatcher and waits for it.
+		 *
+		 * @param action action to be run
+		 */
+		private void call(Runnable action) {
+			FutureTask<?> request = new FutureTask<>(action, null);
+			_requests.offer(request);
+			LockSupport.unpark(_thread);
+			try {
+				while (true) {
+					if (!_thread.isAlive()) {
+						// stopped before picking up the request, or not running while simulating
+						request.run();
+					}
+					try {
+						request.get(10, TimeUnit.MILLISECONDS);
+						return;
+					} catch (TimeoutException e) {
+						// check again
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ScheduleException("interrupted while waiting for the scheduler");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new ScheduleException(e.getCause().toString());
+			}
+		}
+
+		private void stop() {
+			_alive = false;
+			LockSupport.unpark(_thread);
+		}
+
+		/**
+		 * Hands over a due task to the executor and reschedules it, following its misfire policy if the execution after
+		 * this one is already due as well.
+		 *
+		 * @param task due task
+		 * @param now current timestamp
+		 */
+		private void dispatch(Schedule task, long now) {
+			long plannedExecution = task._nextExecution;
+			long nextExecution = 0;
+			boolean missed = false;
+			if (task._repeat) {
+				try {
+					nextExecution = task.nextExecutionTimestamp();
+					missed = nextExecution <= now && task._misfirePolicy != MisfirePolicy.FIRE_ALL;
+					if (missed) {
+						nextExecution = task.nextExecutionTimestampAfter(now);
+					}
+				} catch (RuntimeException e) {
+					// there is no next execution to reschedule, so this one is the last
+					failed(e);
+					nextExecution = 0;
+					missed = false;
+				}
+			}
+			// reschedule before handing over, so that the task stays scheduled if that fails
+			if (nextExecution != 0) {
+				task._nextExecution = nextExecution;
+				_scheduledTasks.add(task);
+			} else {
+				task._alive = false;
+				_size.decrementAndGet();
+				forget(task);
+			}
+			// record the execution first, so that it is not repeated after a restart if the node dies running it
+			Journal journal = _journal;
+			if (journal != null && task._key != null) {
+				if (task._alive) {
+					journal.dispatched(task);
+				} else {
+					journal.removed(task);
+				}
+			}
+			if (!missed || task._misfirePolicy != MisfirePolicy.SKIP) {
+				execute(task, plannedExecution);
+			}
+		}
+
+		private void execute(Schedule task, long plannedExecution) {
+			if (task._overlapPolicy == OverlapPolicy.ALLOW) {
+				enqueue(task, plannedExecution);
+				return;
+			}
+			int admission = task.admit(plannedExecution);
+			if (admission == Schedule.ADMITTED) {
+				enqueue(task, plannedExecution);
+			} else if (admission == Schedule.SKIPPED) {
+				SchedulerStatistics statistics = _statistics;
+				if (statistics != null) {
+					statistics.skipped();
+				}
+			}
+		}
+
+		/**
+		 * Adds an execution to the current batch, or hands it over at once without batching.
+		 *
+		 * @param task scheduled task
+		 * @param plannedExecution timestamp the execution has been planned for
+		 */
+		private void enqueue(Schedule task, long plannedExecution) {
+			int batchSize = _batchSize;
+			if (batchSize == 1 || runsInline(task)) {
+				submit(task, plannedExecution);
+				return;
+			}
+			if (_batch == null) {
+				_batch = new Batch(batchSize);
+			}
+			if (_batch.add(task, prepare(task, plannedExecution))) {
+				flush();
+			}
+		}
+
+		/**
+		 * Hands over the current batch to the executor.
+		 */
+		private void flush() {
+			Batch batch = _batch;
+			if (batch == null) {
+				return;
+			}
+			_batch = null;
+			try {
+				// a single execution needs no batch
+				executor().execute(batch._size == 1 ? batch._runnables[0] : batch);
+			} catch (RuntimeException e) {
+				for (int i = 0; i < batch._size; i++) {
+					rejected(batch._tasks[i], batch._runnables[i], e);
+				}
+			}
+		}
+
+		/**
+		 * Picks up registered and cancelled tasks as well as requests.
+		 */
+		private void drain() {
+			Schedule changed;
+			while ((changed = _registrations.poll()) != null) {
+				if (changed._alive && accepts(changed)) {
+					_scheduledTasks.add(changed);
+				} else {
+					// cancelled before being picked up, or owned by another node
+					_size.decrementAndGet();
+				}
+			}
+			List<Schedule> batch;
+			while ((batch = _batchRegistrations.poll()) != null) {
+				int size = batch.size();
+				batch.removeIf(task -> !task._alive || !accepts(task));
+				_size.addAndGet(batch.size() - size);
+				_scheduledTasks.addAll(batch);
+			}
+			while ((changed = _cancellations.poll()) != null) {
+				if (_scheduledTasks.remove(changed)) {
+					_size.decrementAndGet();
+				}
+				try {
+					forget(changed);
+				} catch (RuntimeException e) {
+					failed(e);
+				}
+			}
+			FutureTask<?> request;
+			while ((request = _requests.poll()) != null) {
+				request.run();
+			}
+		}
+
+		/**
+		 * Dispatches all tasks due at the given time.
+		 *
+		 * @param now current timestamp
+		 * @param dueTasks empty list to collect the due tasks
+		 * @return number of dispatched tasks
+		 */
+		private int dispatchDue(long now, List<Schedule> dueTasks) {
+			int dispatched = 0;
+			_scheduledTasks.pollDue(now, dueTasks);
+			for (Schedule scheduledTask : dueTasks) {
+				if (!scheduledTask._alive) {
+					// cancelled, but the cancellation has not been picked up yet
+					_size.decrementAndGet();
+					forget(scheduledTask);
+					continue;
+				}
+				try {
+					dispatch(scheduledTask, now);
+				} catch (RuntimeException e) {
+					// the task has been rescheduled already, the other due tasks are dispatched anyway
+					failed(e);
+				}
+				dispatched++;
+			}
+			flush();
+			dueTasks.clear();
+			return dispatched;
+		}
+
+		/**
+		 * Runs a simulation from the calling thread instead of the thread of the dispatcher.
+		 *
+		 * @param clock clock of the simulation
+		 * @param target timestamp to advance to
+		 * @param next {@code true} to stop after the next execution; {@code false} else
+		 * @return number of dispatched tasks
+		 */
+		private long advance(VirtualClock clock, long target, boolean next) {
+			List<Schedule> dueTasks = new ArrayList<>();
+			long dispatched = 0;
+			while (_alive && (!next || dispatched == 0)) {
+				drain();
+				long deadline = _scheduledTasks.nextDeadline();
+				if (deadline == Long.MAX_VALUE || deadline > target) {
+					break;
+				}
+				clock.set(Math.max(clock.millis(), deadline));
+				dispatched += dispatchDue(clock.millis(), dueTasks);
+			}
+			if (!next && target > clock.millis()) {
+				clock.set(target);
+			}
+			return dispatched;
+		}
+
+		@Override
+		public void run() {
+			List<Schedule> dueTasks = new ArrayList<>();
+			long busySince = System.nanoTime();
+			while (_alive) {
+				try {
+					drain();
+					dispatchDue(_clock.millis(), dueTasks);
+				} catch (RuntimeException e) {
+					// keep dispatching, a failing task must not stop the others
+					dueTasks.clear();
+					failed(e);
+				}
+				long nextExecution = _scheduledTasks.nextDeadline();
+				SchedulerStatistics statistics = _statistics;
+				if (statistics != null) {
+					statistics.busy(System.nanoTime() - busySince);
+				}
+				_sleepUntil = nextExecution;
+				// changes offered before publishing the deadline did not wake us up, so check again
+				if (_registrations.isEmpty() && _batchRegistrations.isEmpty() && _cancellations.isEmpty()
+						&& _requests.isEmpty()) {
+					long now = _clock.millis();
+					if (nextExecution == Long.MAX_VALUE) {
+						LockSupport.park(this);
+					} else if (nextExecution > now) {
+						LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(nextExecution - now));
+					}
+				}
+				_sleepUntil = Long.MIN_VALUE;
+				busySince = System.nanoTime();
+				// interrupts are ignored, the dispatcher is stopped by shutting down the scheduler
+				Thread.interrupted();
+			}
+			FutureTask<?> request;
+			while ((request = _requests.poll()) != null) {
+				request.run();
+			}
+			_scheduledTasks.clear();
+			_owned.clear();
+			_parked.clear();
+			_registrations.clear();
+			_batchRegistrations.clear();
+			_cancellations.clear();
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package de.lefti.schedule;
+
+/**
+ * Management interface of a scheduler, registered by {@link Scheduler#registerMBean()}. Besides the number of
+ * scheduled tasks, metrics are only recorded while enabled by {@link Scheduler#useMetrics(boolean)}.
+ */
+public interface SchedulerMXBean {
+
+	String getName();
+
+	boolean isMetricsEnabled();
+
+	void setMetricsEnabled(boolean enabled);
+
+	int getScheduledTasks();
+
+	long getDueBacklog();
+
+	double getDispatchThreadUtilisation();
+
+	long getExecutions();
+
+	long getFailures();
+
+	long getSkipped();
+
+	int getInFlight();
+
+	long getAverageLatenessMillis();
+
+	long getMaxLatenessMillis();
+
+	double getAverageExecutionTimeMillis();
+
+	double getMaxExecutionTimeMillis();
+}
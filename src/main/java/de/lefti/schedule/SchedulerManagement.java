@@ -0,0 +1,85 @@
+package de.lefti.schedule;
+
+/**
+ * {@link SchedulerMXBean} of a scheduler, registered by {@link Scheduler#registerMBean()}.
+ */
+final class SchedulerManagement implements SchedulerMXBean {
+
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final Scheduler _scheduler;
+
+	SchedulerManagement(Scheduler scheduler) {
+		_scheduler = scheduler;
+	}
+
+	@Override
+	public String getName() {
+		return _scheduler.getName();
+	}
+
+	@Override
+	public boolean isMetricsEnabled() {
+		return _scheduler.isUsingMetrics();
+	}
+
+	@Override
+	public void setMetricsEnabled(boolean enabled) {
+		_scheduler.useMetrics(enabled);
+	}
+
+	@Override
+	public int getScheduledTasks() {
+		return _scheduler.size();
+	}
+
+	@Override
+	public long getDueBacklog() {
+		return _scheduler.metrics().getDueBacklog();
+	}
+
+	@Override
+	public double getDispatchThreadUtilisation() {
+		return _scheduler.metrics().getDispatchThreadUtilisation();
+	}
+
+	@Override
+	public long getExecutions() {
+		return _scheduler.metrics().getExecutions().getExecutions();
+	}
+
+	@Override
+	public long getFailures() {
+		return _scheduler.metrics().getExecutions().getFailures();
+	}
+
+	@Override
+	public long getSkipped() {
+		return _scheduler.metrics().getExecutions().getSkipped();
+	}
+
+	@Override
+	public int getInFlight() {
+		return _scheduler.metrics().getExecutions().getInFlight();
+	}
+
+	@Override
+	public long getAverageLatenessMillis() {
+		return _scheduler.metrics().getExecutions().getAverageLateness().toMillis();
+	}
+
+	@Override
+	public long getMaxLatenessMillis() {
+		return _scheduler.metrics().getExecutions().getMaxLateness().toMillis();
+	}
+
+	@Override
+	public double getAverageExecutionTimeMillis() {
+		return _scheduler.metrics().getExecutions().getAverageExecutionTime().toNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxExecutionTimeMillis() {
+		return _scheduler.metrics().getExecutions().getMaxExecutionTime().toNanos() / NANOS_PER_MILLI;
+	}
+}
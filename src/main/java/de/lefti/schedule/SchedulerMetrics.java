@@ -0,0 +1,55 @@
+package de.lefti.schedule;
+
+/**
+ * Snapshot of the metrics of a scheduler. Besides the number of scheduled tasks, metrics are only recorded while
+ * enabled by {@link Scheduler#useMetrics(boolean)}.
+ */
+public final class SchedulerMetrics {
+
+	private final int _scheduledTasks;
+	private final long _dueBacklog;
+	private final double _dispatchThreadUtilisation;
+	private final ScheduleMetrics _executions;
+
+	SchedulerMetrics(int scheduledTasks, long dueBacklog, double dispatchThreadUtilisation, ScheduleMetrics executions) {
+		_scheduledTasks = scheduledTasks;
+		_dueBacklog = dueBacklog;
+		_dispatchThreadUtilisation = dispatchThreadUtilisation;
+		_executions = executions;
+	}
+
+	/**
+	 * @return number of scheduled tasks
+	 */
+	public int getScheduledTasks() {
+		return _scheduledTasks;
+	}
+
+	/**
+	 * @return number of due executions handed over to the executor, but not yet started
+	 */
+	public long getDueBacklog() {
+		return _dueBacklog;
+	}
+
+	/**
+	 * @return share of time the thread of the scheduler has been busy instead of waiting for the next task, between
+	 * 0 and 1
+	 */
+	public double getDispatchThreadUtilisation() {
+		return _dispatchThreadUtilisation;
+	}
+
+	/**
+	 * @return metrics of the executions of all tasks
+	 */
+	public ScheduleMetrics getExecutions() {
+		return _executions;
+	}
+
+	@Override
+	public String toString() {
+		return "scheduledTasks=" + _scheduledTasks + ", dueBacklog=" + _dueBacklog
+				+ ", dispatchThreadUtilisation=" + _dispatchThreadUtilisation + ", " + _executions;
+	}
+}
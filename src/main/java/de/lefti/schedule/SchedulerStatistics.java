@@ -0,0 +1,151 @@
+package de.lefti.schedule;
+
+import java.time.Clock;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Records the metrics of a scheduler while they are enabled. Executions are wrapped to record their lateness, run time
+ * and result for the task and the scheduler.
+ */
+final class SchedulerStatistics {
+
+	private final TaskStatistics _executions = new TaskStatistics();
+	// executions handed over to the executor and not started yet, a set instead of a counter so that an execution is
+	// taken back only once, whether it is started, rejected or dropped by shutting down
+	private final Set<Runnable> _dueBacklog = ConcurrentHashMap.newKeySet();
+	private final LongAdder _busyNanos = new LongAdder();
+	private final long _since = System.nanoTime();
+
+	/**
+	 * Wraps an execution of a task.
+	 *
+	 * @param task scheduled task
+	 * @param runnable execution to be wrapped
+	 * @param plannedExecution timestamp the execution has been planned for
+	 * @param clock clock of the scheduler
+	 * @return runnable recording the metrics of the execution
+	 */
+	Runnable instrument(Schedule task, Runnable runnable, long plannedExecution, Clock clock) {
+		TaskStatistics taskStatistics = statisticsOf(task);
+		return () -> {
+			long lateness = Math.max(0, clock.millis() - plannedExecution);
+			taskStatistics.started(lateness);
+			_executions.started(lateness);
+			long start = System.nanoTime();
+			boolean failed = true;
+			try {
+				runnable.run();
+				failed = false;
+			} finally {
+				long executionNanos = System.nanoTime() - start;
+				taskStatistics.finished(executionNanos, failed);
+				_executions.finished(executionNanos, failed);
+			}
+		};
+	}
+
+	/**
+	 * Wraps an asynchronous execution of a task, which is finished when its stage completes.
+	 *
+	 * @param task scheduled task
+	 * @param execution execution to be wrapped
+	 * @param plannedExecution timestamp the execution has been planned for
+	 * @param clock clock of the scheduler
+	 * @return execution recording its metrics
+	 */
+	Supplier<CompletionStage<?>> instrument(Schedule task, Supplier<CompletionStage<?>> execution,
+	                                        long plannedExecution, Clock clock) {
+		TaskStatistics taskStatistics = statisticsOf(task);
+		return () -> {
+			long lateness = Math.max(0, clock.millis() - plannedExecution);
+			taskStatistics.started(lateness);
+			_executions.started(lateness);
+			long start = System.nanoTime();
+			CompletionStage<?> stage;
+			try {
+				stage = execution.get();
+			} catch (RuntimeException | Error e) {
+				long executionNanos = System.nanoTime() - start;
+				taskStatistics.finished(executionNanos, true);
+				_executions.finished(executionNanos, true);
+				throw e;
+			}
+			return stage.whenComplete((result, failure) -> {
+				long executionNanos = System.nanoTime() - start;
+				taskStatistics.finished(executionNanos, failure != null);
+				_executions.finished(executionNanos, failure != null);
+			});
+		};
+	}
+
+	/**
+	 * Records an execution that has been skipped because the previous executions of the task are still running. The
+	 * task counts its skipped executions itself, see {@link Schedule#skipped()}.
+	 */
+	void skipped() {
+		_executions.skipped();
+	}
+
+	private static TaskStatistics statisticsOf(Schedule task) {
+		TaskStatistics statistics = task._statistics;
+		if (statistics == null) {
+			// queued executions are submitted by worker threads as well
+			synchronized (task) {
+				statistics = task._statistics;
+				if (statistics == null) {
+					statistics = new TaskStatistics();
+					task._statistics = statistics;
+				}
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Wraps an execution handed over to the executor, which is counted as due backlog until a worker starts it.
+	 *
+	 * @param runnable execution to be handed over
+	 * @return runnable to be handed over instead
+	 */
+	Runnable handOver(Runnable runnable) {
+		Runnable handover = new Runnable() {
+			@Override
+			public void run() {
+				_dueBacklog.remove(this);
+				runnable.run();
+			}
+		};
+		_dueBacklog.add(handover);
+		return handover;
+	}
+
+	/**
+	 * Takes back an execution wrapped by {@link #handOver(Runnable)} that has been rejected by the executor.
+	 *
+	 * @param handover wrapped execution
+	 */
+	void rejected(Runnable handover) {
+		_dueBacklog.remove(handover);
+	}
+
+	/**
+	 * Takes back all executions not started yet when shutting down the scheduler, as the executor may drop them.
+	 */
+	void shutdown() {
+		_dueBacklog.clear();
+	}
+
+	void busy(long nanos) {
+		_busyNanos.add(nanos);
+	}
+
+	SchedulerMetrics snapshot(int scheduledTasks) {
+		long elapsed = System.nanoTime() - _since;
+		double utilisation = elapsed <= 0 ? 0 : Math.min(1, (double) _busyNanos.sum() / elapsed);
+		return new SchedulerMetrics(scheduledTasks, _dueBacklog.size(), utilisation, _executions.snapshot());
+	}
+}
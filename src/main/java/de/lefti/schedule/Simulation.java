@@ -0,0 +1,69 @@
+package de.lefti.schedule;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Simulation of a scheduler in virtual time, started by {@link Scheduler#simulate(Instant, java.time.ZoneId)}. The
+ * scheduler does not run its own thread, instead the simulation advances the virtual time straight to the next
+ * execution and runs the due tasks synchronously in the calling thread. This allows to replay years of executions in
+ * seconds, e.g. to test monthly tasks or to plan capacities.
+ */
+public final class Simulation {
+
+	private final Scheduler _scheduler;
+	private final VirtualClock _clock;
+	private long _executions = 0;
+
+	Simulation(Scheduler scheduler, VirtualClock clock) {
+		_scheduler = scheduler;
+		_clock = clock;
+	}
+
+	/**
+	 * @return current virtual time
+	 */
+	public Instant now() {
+		return _clock.instant();
+	}
+
+	/**
+	 * @return number of executions run by this simulation
+	 */
+	public synchronized long executions() {
+		return _executions;
+	}
+
+	/**
+	 * Advances the virtual time by the given duration, running all tasks due in the meantime.
+	 *
+	 * @param duration duration to advance
+	 * @return number of executions run
+	 */
+	public long advanceBy(Duration duration) {
+		return advanceTo(now().plus(duration));
+	}
+
+	/**
+	 * Advances the virtual time to the given time, running all tasks due in the meantime.
+	 *
+	 * @param time time to advance to
+	 * @return number of executions run
+	 */
+	public synchronized long advanceTo(Instant time) {
+		long executions = _scheduler.advance(_clock, time.toEpochMilli(), false);
+		_executions += executions;
+		return executions;
+	}
+
+	/**
+	 * Advances the virtual time to the next execution and runs all tasks due then.
+	 *
+	 * @return number of executions run, 0 if there are no tasks
+	 */
+	public synchronized long runNext() {
+		long executions = _scheduler.advance(_clock, Long.MAX_VALUE, true);
+		_executions += executions;
+		return executions;
+	}
+}
@@ -0,0 +1,118 @@
+package de.lefti.schedule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the tasks of a scheduler, see {@link Scheduler#snapshot(Path)}. Each task with a key is written
+ * as its key, its definition and its next execution.
+ */
+final class Snapshot {
+
+	private static final int MAGIC = 0x5343534E;
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 12;
+
+	private ByteBuffer _buffer = ByteBuffer.allocate(4096);
+	private int _count = 0;
+
+	Snapshot() {
+		_buffer.position(HEADER_SIZE);
+	}
+
+	/**
+	 * Adds a task, tasks without key are skipped.
+	 *
+	 * @param task task to be added
+	 */
+	void add(Schedule task) {
+		if (task._key == null || !task._alive) {
+			return;
+		}
+		putKey(task._key);
+		task.writeDefinition(_buffer);
+		_buffer.putLong(task._nextExecution);
+		_count++;
+	}
+
+	/**
+	 * Adds a task given by its definition followed by its next execution.
+	 *
+	 * @param key key of the task
+	 * @param definition definition and next execution
+	 */
+	void add(String key, byte[] definition) {
+		putKey(key);
+		_buffer.put(definition);
+		_count++;
+	}
+
+	/**
+	 * Writes the key of a task, making room for the whole task.
+	 */
+	private void putKey(String task) {
+		byte[] key = task.getBytes(StandardCharsets.UTF_8);
+		if (key.length > 0xFFFF) {
+			throw new ScheduleException("key too long");
+		}
+		int size = 2 + key.length + Schedule.DEFINITION_SIZE + 8;
+		if (_buffer.remaining() < size) {
+			ByteBuffer buffer = ByteBuffer.allocate(Math.max(_buffer.capacity() * 2, _buffer.position() + size));
+			_buffer.flip();
+			buffer.put(_buffer);
+			_buffer = buffer;
+		}
+		_buffer.putShort((short) key.length).put(key);
+	}
+
+	/**
+	 * Writes the snapshot to a file, replacing it at once when complete.
+	 *
+	 * @param file file to be written
+	 * @throws IOException if the file cannot be written
+	 */
+	void write(Path file) throws IOException {
+		_buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, _count);
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temp, Arrays.copyOf(_buffer.array(), _buffer.position()));
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the tasks of a snapshot, without their runnables.
+	 *
+	 * @param scheduler scheduler running the tasks
+	 * @param file file to be read
+	 * @return tasks by their keys, in no particular order
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	static Map<String, Schedule> read(Scheduler scheduler, Path file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("not a snapshot: " + file);
+		}
+		int count = buffer.getInt();
+		Map<String, Schedule> schedules = new LinkedHashMap<>(count * 4 / 3 + 1);
+		try {
+			for (int i = 0; i < count; i++) {
+				int length = buffer.getShort() & 0xFFFF;
+				String key = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+				buffer.position(buffer.position() + length);
+				Schedule schedule = Schedule.readDefinition(scheduler, buffer);
+				schedule._key = key;
+				schedule._nextExecution = buffer.getLong();
+				schedules.put(key, schedule);
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("incomplete snapshot: " + file, e);
+		}
+		return schedules;
+	}
+}
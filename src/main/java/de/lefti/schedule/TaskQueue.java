@@ -0,0 +1,72 @@
+package de.lefti.schedule;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Index of scheduled tasks ordered by their next execution, used by the core scheduler to find out when to wake up and
+ * which tasks are due. Implementations are not thread safe, they are only accessed by the core scheduler.
+ */
+interface TaskQueue {
+
+	/**
+	 * Adds a task using its current next execution timestamp.
+	 *
+	 * @param task task to be added
+	 */
+	void add(Schedule task);
+
+	/**
+	 * Adds multiple tasks at once using their current next execution timestamps.
+	 *
+	 * @param tasks tasks to be added
+	 */
+	default void addAll(Collection<Schedule> tasks) {
+		for (Schedule task : tasks) {
+			add(task);
+		}
+	}
+
+	/**
+	 * Removes a task, e.g. because it has been cancelled.
+	 *
+	 * @param task task to be removed
+	 * @return {@code true} if the task has been in this queue; {@code false} else
+	 */
+	boolean remove(Schedule task);
+
+	/**
+	 * Removes all tasks that are due at the given time and adds them to the given collection. Tasks cancelled after
+	 * the last removal may be returned as well and have to be skipped by the caller.
+	 *
+	 * @param now current timestamp in millis
+	 * @param dueTasks collection to add the due tasks to
+	 */
+	void pollDue(long now, Collection<Schedule> dueTasks);
+
+	/**
+	 * Returns the timestamp the scheduler has to wake up at the latest. This is not necessarily the next execution of
+	 * a task, but there is no task due before.
+	 *
+	 * @return timestamp in millis or {@link Long#MAX_VALUE} if there are no tasks
+	 */
+	long nextDeadline();
+
+	/**
+	 * Performs the given action for each task in this queue, in no particular order. The action must not modify this
+	 * queue.
+	 *
+	 * @param action action to be performed
+	 */
+	void forEach(Consumer<Schedule> action);
+
+	/**
+	 * @return number of tasks in this queue
+	 */
+	int size();
+
+	/**
+	 * Removes all tasks.
+	 */
+	void clear();
+}
@@ -0,0 +1,54 @@
+package de.lefti.schedule;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe counters of the executions of a single scheduled task, or of all tasks of a scheduler.
+ */
+final class TaskStatistics {
+
+	private final LongAdder _executions = new LongAdder();
+	private final LongAdder _failures = new LongAdder();
+	private final LongAdder _skipped = new LongAdder();
+	private final AtomicInteger _inFlight = new AtomicInteger();
+	private final LongAdder _totalLatenessMillis = new LongAdder();
+	private final LongAccumulator _maxLatenessMillis = new LongAccumulator(Math::max, 0);
+	private final LongAdder _totalExecutionNanos = new LongAdder();
+	private final LongAccumulator _maxExecutionNanos = new LongAccumulator(Math::max, 0);
+
+	void started(long latenessMillis) {
+		_inFlight.incrementAndGet();
+		_totalLatenessMillis.add(latenessMillis);
+		_maxLatenessMillis.accumulate(latenessMillis);
+	}
+
+	void finished(long executionNanos, boolean failed) {
+		_inFlight.decrementAndGet();
+		_executions.increment();
+		if (failed) {
+			_failures.increment();
+		}
+		_totalExecutionNanos.add(executionNanos);
+		_maxExecutionNanos.accumulate(executionNanos);
+	}
+
+	void skipped() {
+		_skipped.increment();
+	}
+
+	ScheduleMetrics snapshot() {
+		return snapshot(_skipped.sum());
+	}
+
+	/**
+	 * @param skipped skipped executions, counted by the task itself for the metrics of a single task
+	 */
+	ScheduleMetrics snapshot(long skipped) {
+		long executions = _executions.sum();
+		return new ScheduleMetrics(executions, _failures.sum(), skipped, _inFlight.get(),
+				executions == 0 ? 0 : _totalLatenessMillis.sum() / executions, _maxLatenessMillis.get(),
+				executions == 0 ? 0 : _totalExecutionNanos.sum() / executions, _maxExecutionNanos.get());
+	}
+}
@@ -0,0 +1,54 @@
+package de.lefti.schedule;
+
+import java.time.Instant;
+
+/**
+ * Execution of a scheduled task published by a {@link TickPublisher}.
+ */
+public final class Tick {
+
+	private final Schedule _schedule;
+	private final long _plannedTimestamp;
+	private final long _actualTimestamp;
+
+	Tick(Schedule schedule, long plannedTimestamp, long actualTimestamp) {
+		_schedule = schedule;
+		_plannedTimestamp = plannedTimestamp;
+		_actualTimestamp = actualTimestamp;
+	}
+
+	/**
+	 * @return task of the execution
+	 */
+	public Schedule getSchedule() {
+		return _schedule;
+	}
+
+	/**
+	 * @return key of the task, {@code null} if it has no key
+	 */
+	public String getKey() {
+		return _schedule._key;
+	}
+
+	/**
+	 * @return timestamp the execution has been planned for, in milliseconds since the epoch
+	 */
+	public long getPlannedTimestamp() {
+		return _plannedTimestamp;
+	}
+
+	/**
+	 * @return timestamp the execution has actually been run at, in milliseconds since the epoch
+	 */
+	public long getActualTimestamp() {
+		return _actualTimestamp;
+	}
+
+	@Override
+	public String toString() {
+		String key = _schedule._key == null ? "" : _schedule._key + " ";
+		return "Tick{" + key + "planned " + Instant.ofEpochMilli(_plannedTimestamp) + ", actual "
+				+ Instant.ofEpochMilli(_actualTimestamp) + "}";
+	}
+}
@@ -0,0 +1,176 @@
+package de.lefti.schedule;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publisher of the executions of scheduled tasks, see {@link Schedule#publish(TickPublisher)}. Several tasks can
+ * publish to the same publisher. Each execution is delivered as {@link Tick} to all subscribers that have requested
+ * one; ticks published while a subscriber has not requested any are dropped or conflated, so a slow subscriber never
+ * holds up the scheduler. Ticks are delivered by the thread of the scheduler, or by a worker if the execution needs a
+ * lease, and by the threads requesting more ticks; the publisher has no threads of its own. Subscribers must not block
+ * in {@link Flow.Subscriber#onNext(Object)}, but hand over slow work to an executor of their own.
+ */
+public final class TickPublisher implements Flow.Publisher<Tick> {
+
+	private final BackpressurePolicy _policy;
+	private final List<TickSubscription> _subscriptions = new CopyOnWriteArrayList<>();
+	private final LongAdder _dropped = new LongAdder();
+	private volatile boolean _closed = false;
+
+	/**
+	 * Creates a publisher dropping ticks while a subscriber has not requested any.
+	 */
+	public TickPublisher() {
+		this(BackpressurePolicy.DROP);
+	}
+
+	/**
+	 * Creates a publisher.
+	 *
+	 * @param policy policy for ticks published while a subscriber has not requested any
+	 */
+	public TickPublisher(BackpressurePolicy policy) {
+		if (policy == null) {
+			throw new ScheduleException("backpressure policy must not be null");
+		}
+		_policy = policy;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Tick> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber must not be null");
+		}
+		TickSubscription subscription = new TickSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		_subscriptions.add(subscription);
+		if (_closed) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * @return number of ticks dropped or replaced by a later tick, summed up over all subscribers
+	 */
+	public long getDropped() {
+		return _dropped.sum();
+	}
+
+	/**
+	 * @return number of current subscribers
+	 */
+	public int getSubscribers() {
+		return _subscriptions.size();
+	}
+
+	/**
+	 * Completes all subscriptions. Ticks published afterwards are ignored, tasks publishing to this publisher should
+	 * be cancelled.
+	 */
+	public void close() {
+		_closed = true;
+		for (TickSubscription subscription : _subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Delivers a tick to all subscribers.
+	 *
+	 * @param tick tick to be published
+	 */
+	void publish(Tick tick) {
+		if (_closed) {
+			return;
+		}
+		for (TickSubscription subscription : _subscriptions) {
+			subscription.offer(tick);
+		}
+	}
+
+	/**
+	 * Subscription holding at most one tick not delivered yet. Signals to the subscriber are serialized by whichever
+	 * thread increments the counter of pending work first.
+	 */
+	private final class TickSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super Tick> _subscriber;
+		private final AtomicLong _demand = new AtomicLong();
+		private final AtomicReference<Tick> _pending = new AtomicReference<>();
+		private final AtomicInteger _work = new AtomicInteger();
+		private volatile boolean _cancelled = false;
+		private volatile boolean _completed = false;
+		private volatile Throwable _error;
+
+		private TickSubscription(Flow.Subscriber<? super Tick> subscriber) {
+			_subscriber = subscriber;
+		}
+
+		private void offer(Tick tick) {
+			if (_policy == BackpressurePolicy.CONFLATE) {
+				if (_pending.getAndSet(tick) != null) {
+					_dropped.increment();
+				}
+			} else if (_demand.get() == 0 || !_pending.compareAndSet(null, tick)) {
+				_dropped.increment();
+				return;
+			}
+			drain();
+		}
+
+		private void complete() {
+			_completed = true;
+			drain();
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				_error = new IllegalArgumentException("non-positive request: " + n);
+			} else {
+				_demand.getAndUpdate(demand -> demand + n < 0 ? Long.MAX_VALUE : demand + n);
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			_cancelled = true;
+			_subscriptions.remove(this);
+		}
+
+		/**
+		 * Delivers the pending tick and the final signal, unless another thread is already doing so.
+		 */
+		private void drain() {
+			if (_work.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (!_cancelled && _error != null) {
+					cancel();
+					_subscriber.onError(_error);
+				}
+				while (!_cancelled && _demand.get() > 0) {
+					Tick tick = _pending.getAndSet(null);
+					if (tick == null) {
+						break;
+					}
+					_demand.getAndUpdate(demand -> demand == Long.MAX_VALUE ? demand : demand - 1);
+					_subscriber.onNext(tick);
+				}
+				if (!_cancelled && _completed) {
+					cancel();
+					_subscriber.onComplete();
+				}
+				missed = _work.addAndGet(-missed);
+			} while (missed != 0);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package de.lefti.schedule;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Parsed timestamp for {@link Schedule#at(TimeSpec)}. Parsing a timestamp once and sharing the immutable result
+ * between many schedules avoids parsing the same timestamp over and over again.
+ * <p>
+ * Supported formats are "HH:MM:SS", "HH:MM", "MM:SS", ":MM", ":SS", "mm-dd HH:MM:SS", "mm-dd HH:MM", "mm-dd",
+ * "-dd HH:MM:SS", "-dd HH:MM" and "-dd". Whether a format fits depends on the unit of the schedule, see
+ * {@link Schedule#at(String)}.
+ */
+public final class TimeSpec {
+
+	private static final int ABSENT = -1;
+
+	enum Format {
+		// ":NN"
+		COLON,
+		// "NN:NN"
+		PAIR,
+		// "NN:NN:NN"
+		TRIPLE,
+		// "mm-dd" or "-dd"
+		DATE,
+		// "mm-dd HH:MM", "mm-dd HH:MM:SS", "-dd HH:MM" or "-dd HH:MM:SS"
+		DATE_TIME
+	}
+
+	private final String _timestamp;
+	final Format _format;
+	// numbers in order of appearance, a missing leading number (":NN", "-dd") is ABSENT
+	final int[] _values;
+
+	private TimeSpec(String timestamp, Format format, int... values) {
+		_timestamp = timestamp;
+		_format = format;
+		_values = values;
+	}
+
+	/**
+	 * Parses a timestamp.
+	 *
+	 * @param timestamp timestamp as string.
+	 * @return TimeSpec object
+	 * @throws TimeFormatException if the timestamp does not match any supported format
+	 */
+	public static TimeSpec parse(String timestamp) {
+		TimeSpec time = timestamp.indexOf('-') < 0 ? parseTime(timestamp) : parseDate(timestamp);
+		if (time == null) {
+			throw new TimeFormatException("invalid time format");
+		}
+		return time;
+	}
+
+	private static TimeSpec parseTime(String timestamp) {
+		int length = timestamp.length();
+		if (length == 3 && timestamp.charAt(0) == ':') {
+			int value = number(timestamp, 1);
+			return value == ABSENT ? null : new TimeSpec(timestamp, Format.COLON, ABSENT, value);
+		}
+		if (length != 5 && length != 8) {
+			return null;
+		}
+		int first = number(timestamp, 0);
+		int second = number(timestamp, 3);
+		if (first == ABSENT || timestamp.charAt(2) != ':' || second == ABSENT) {
+			return null;
+		}
+		if (length == 5) {
+			return new TimeSpec(timestamp, Format.PAIR, first, second);
+		}
+		int third = number(timestamp, 6);
+		if (timestamp.charAt(5) != ':' || third == ABSENT) {
+			return null;
+		}
+		return new TimeSpec(timestamp, Format.TRIPLE, first, second, third);
+	}
+
+	private static TimeSpec parseDate(String timestamp) {
+		int length = timestamp.length();
+		int index = 0;
+		int month = ABSENT;
+		if (length > 0 && timestamp.charAt(0) != '-') {
+			month = number(timestamp, 0);
+			if (month == ABSENT) {
+				return null;
+			}
+			index = 2;
+		}
+		if (index + 3 > length || timestamp.charAt(index) != '-') {
+			return null;
+		}
+		int day = number(timestamp, index + 1);
+		if (day == ABSENT) {
+			return null;
+		}
+		index += 3;
+		if (index == length) {
+			return new TimeSpec(timestamp, Format.DATE, month, day);
+		}
+		if (index + 6 > length || !isWhitespace(timestamp.charAt(index)) || timestamp.charAt(index + 3) != ':') {
+			return null;
+		}
+		int hour = number(timestamp, index + 1);
+		int minute = number(timestamp, index + 4);
+		if (hour == ABSENT || minute == ABSENT) {
+			return null;
+		}
+		index += 6;
+		if (index == length) {
+			return new TimeSpec(timestamp, Format.DATE_TIME, month, day, hour, minute);
+		}
+		int second = index + 3 == length && timestamp.charAt(index) == ':' ? number(timestamp, index + 1) : ABSENT;
+		if (second == ABSENT) {
+			return null;
+		}
+		return new TimeSpec(timestamp, Format.DATE_TIME, month, day, hour, minute, second);
+	}
+
+	/**
+	 * Checks whether this timestamp is allowed for schedules of the given unit.
+	 *
+	 * @param unit unit of the schedule
+	 * @return {@code true} if the format and the values fit the unit; {@code false} else
+	 */
+	boolean isValidFor(ChronoUnit unit) {
+		if (unit == ChronoUnit.MINUTES) {
+			// ":SS"
+			return _format == Format.COLON && _values[1] <= 59;
+		} else if (unit == ChronoUnit.HOURS) {
+			// "MM:SS" or ":MM"
+			return (_format == Format.COLON || _format == Format.PAIR) && _values[0] <= 59 && _values[1] <= 59;
+		} else if (unit == ChronoUnit.DAYS || unit == ChronoUnit.WEEKS) {
+			// "HH:MM:SS" or "HH:MM"
+			return _format == Format.PAIR && _values[0] <= 59 && _values[1] <= 59
+					|| _format == Format.TRIPLE && _values[0] <= 29 && _values[1] <= 59 && _values[2] <= 59;
+		} else if (unit == ChronoUnit.MONTHS || unit == ChronoUnit.YEARS) {
+			// "mm-dd HH:MM:SS", "mm-dd HH:MM", "mm-dd", but month only for yearly tasks
+			if (_format != Format.DATE && _format != Format.DATE_TIME) {
+				return false;
+			}
+			boolean validMonth = unit == ChronoUnit.YEARS ? _values[0] <= 19 : _values[0] == ABSENT;
+			return validMonth && _values[1] <= 39
+					&& (_values.length < 3 || _values[2] <= 29 && _values[3] <= 59)
+					&& (_values.length < 5 || _values[4] <= 59);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return _timestamp;
+	}
+
+	/**
+	 * Reads a number of exactly two digits.
+	 *
+	 * @return value of the number or {@link #ABSENT} if there are no two digits at the given index
+	 */
+	private static int number(String timestamp, int index) {
+		if (index + 2 > timestamp.length()) {
+			return ABSENT;
+		}
+		int high = timestamp.charAt(index) - '0';
+		int low = timestamp.charAt(index + 1) - '0';
+		if (high < 0 || high > 9 || low < 0 || low > 9) {
+			return ABSENT;
+		}
+		return high * 10 + low;
+	}
+
+	/**
+	 * Same characters as {@code \s} in regular expressions.
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+}
@@ -0,0 +1,238 @@
+package de.lefti.schedule;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Task queue backed by a hierarchical timing wheel with a resolution of one millisecond. There is a wheel for
+ * milliseconds, seconds, minutes, hours and days (covering 1024 days), tasks even further in the future are kept in an
+ * overflow slot. Whenever the current time reaches a slot of a coarser wheel, its tasks are cascaded down to the finer
+ * wheels. Adding and removing a task is O(1), polling due tasks is amortized O(1) per task.
+ */
+final class TimingWheelTaskQueue implements TaskQueue {
+
+	private static final int[] WHEEL_SIZES = {1000, 60, 60, 24, 1024};
+	private static final int OVERFLOW = WHEEL_SIZES.length;
+	private static final int EXPIRED = OVERFLOW + 1;
+
+	static final class Slot {
+		private final int _level;
+		private Schedule _head;
+
+		private Slot(int level) {
+			_level = level;
+		}
+	}
+
+	private final Slot[][] _wheels = new Slot[WHEEL_SIZES.length][];
+	// millis covered by a single slot of each level, the last one is the range of the whole wheel
+	private final long[] _spans = new long[WHEEL_SIZES.length + 1];
+	private final int[] _counts = new int[EXPIRED + 1];
+	private final Slot _overflow = new Slot(OVERFLOW);
+	private final Slot _expired = new Slot(EXPIRED);
+	private int _size = 0;
+	// next tick that has not been processed yet
+	private long _current;
+
+	/**
+	 * Creates an empty timing wheel.
+	 *
+	 * @param now current timestamp of the scheduler, the first tick to be processed
+	 */
+	TimingWheelTaskQueue(long now) {
+		_current = now;
+		_spans[0] = 1;
+		for (int level = 0; level < WHEEL_SIZES.length; level++) {
+			_wheels[level] = new Slot[WHEEL_SIZES[level]];
+			for (int i = 0; i < WHEEL_SIZES[level]; i++) {
+				_wheels[level][i] = new Slot(level);
+			}
+			_spans[level + 1] = _spans[level] * WHEEL_SIZES[level];
+		}
+	}
+
+	@Override
+	public void add(Schedule task) {
+		long deadline = task._nextExecution;
+		if (deadline < _current) {
+			link(_expired, task);
+			return;
+		}
+		// use the finest wheel whose current revolution contains the deadline
+		for (int level = 0; level < WHEEL_SIZES.length; level++) {
+			if (deadline / _spans[level + 1] == _current / _spans[level + 1]) {
+				link(slot(level, deadline), task);
+				return;
+			}
+		}
+		link(_overflow, task);
+	}
+
+	@Override
+	public boolean remove(Schedule task) {
+		if (task._wheelSlot == null) {
+			return false;
+		}
+		unlink(task);
+		return true;
+	}
+
+	@Override
+	public void pollDue(long now, Collection<Schedule> dueTasks) {
+		drain(_expired, dueTasks);
+		while (_current <= now) {
+			if (_size == _counts[EXPIRED]) {
+				_current = now + 1;
+				break;
+			}
+			int level = 0;
+			while (_counts[level] == 0) {
+				level++;
+			}
+			if (level > 0) {
+				// nothing happens until the next slot of the finest non-empty wheel is reached
+				long boundary = ceil(_current, _spans[level]);
+				if (boundary > now) {
+					_current = now + 1;
+					break;
+				}
+				_current = boundary;
+			}
+			tick(_current, dueTasks);
+			_current++;
+		}
+		// the coarse slots starting at the current time hold the earliest tasks, nextDeadline() expects them cascaded
+		cascade(_current);
+	}
+
+	@Override
+	public long nextDeadline() {
+		if (_counts[EXPIRED] > 0) {
+			return _current - 1;
+		}
+		for (int level = 0; level < WHEEL_SIZES.length; level++) {
+			if (_counts[level] > 0) {
+				long span = _spans[level];
+				long end = (_current / _spans[level + 1] + 1) * _spans[level + 1];
+				for (long time = ceil(_current, span); time < end; time += span) {
+					if (slot(level, time)._head != null) {
+						return time;
+					}
+				}
+			}
+		}
+		if (_counts[OVERFLOW] > 0) {
+			return ceil(_current, _spans[OVERFLOW]);
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int size() {
+		return _size;
+	}
+
+	@Override
+	public void forEach(Consumer<Schedule> action) {
+		for (Slot[] wheel : _wheels) {
+			for (Slot slot : wheel) {
+				forEach(slot, action);
+			}
+		}
+		forEach(_overflow, action);
+		forEach(_expired, action);
+	}
+
+	@Override
+	public void clear() {
+		for (Slot[] wheel : _wheels) {
+			for (Slot slot : wheel) {
+				clear(slot);
+			}
+		}
+		clear(_overflow);
+		clear(_expired);
+	}
+
+	private void tick(long time, Collection<Schedule> dueTasks) {
+		cascade(time);
+		drain(slot(0, time), dueTasks);
+	}
+
+	private void cascade(long time) {
+		// cascade coarse wheels first, so tasks can fall through multiple wheels at once
+		for (int level = OVERFLOW; level > 0; level--) {
+			if (time % _spans[level] == 0) {
+				cascade(level == OVERFLOW ? _overflow : slot(level, time));
+			}
+		}
+	}
+
+	private void cascade(Slot slot) {
+		// walk the list as it was, tasks beyond the next revolution are linked into the overflow slot again
+		Schedule task = slot._head;
+		while (task != null) {
+			Schedule next = task._wheelNext;
+			unlink(task);
+			add(task);
+			task = next;
+		}
+	}
+
+	private void drain(Slot slot, Collection<Schedule> dueTasks) {
+		while (slot._head != null) {
+			Schedule task = slot._head;
+			unlink(task);
+			dueTasks.add(task);
+		}
+	}
+
+	private void forEach(Slot slot, Consumer<Schedule> action) {
+		for (Schedule task = slot._head; task != null; task = task._wheelNext) {
+			action.accept(task);
+		}
+	}
+
+	private void clear(Slot slot) {
+		while (slot._head != null) {
+			unlink(slot._head);
+		}
+	}
+
+	private Slot slot(int level, long time) {
+		return _wheels[level][(int) (time / _spans[level] % WHEEL_SIZES[level])];
+	}
+
+	private void link(Slot slot, Schedule task) {
+		task._wheelSlot = slot;
+		task._wheelPrev = null;
+		task._wheelNext = slot._head;
+		if (slot._head != null) {
+			slot._head._wheelPrev = task;
+		}
+		slot._head = task;
+		_counts[slot._level]++;
+		_size++;
+	}
+
+	private void unlink(Schedule task) {
+		Slot slot = task._wheelSlot;
+		if (task._wheelPrev != null) {
+			task._wheelPrev._wheelNext = task._wheelNext;
+		} else {
+			slot._head = task._wheelNext;
+		}
+		if (task._wheelNext != null) {
+			task._wheelNext._wheelPrev = task._wheelPrev;
+		}
+		task._wheelSlot = null;
+		task._wheelPrev = null;
+		task._wheelNext = null;
+		_counts[slot._level]--;
+		_size--;
+	}
+
+	private static long ceil(long time, long span) {
+		return (time + span - 1) / span * span;
+	}
+}
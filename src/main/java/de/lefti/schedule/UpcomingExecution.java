@@ -0,0 +1,37 @@
+package de.lefti.schedule;
+
+import java.time.Instant;
+
+/**
+ * Upcoming execution of a scheduled task, see {@link Scheduler#upcoming()}.
+ */
+public final class UpcomingExecution {
+
+	private final Schedule _schedule;
+	private final long _timestamp;
+
+	UpcomingExecution(Schedule schedule, long timestamp) {
+		_schedule = schedule;
+		_timestamp = timestamp;
+	}
+
+	/**
+	 * @return task of the execution
+	 */
+	public Schedule getSchedule() {
+		return _schedule;
+	}
+
+	/**
+	 * @return planned timestamp of the execution in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return _timestamp;
+	}
+
+	@Override
+	public String toString() {
+		String key = _schedule._key == null ? "" : _schedule._key + " at ";
+		return "UpcomingExecution{" + key + Instant.ofEpochMilli(_timestamp) + "}";
+	}
+}
@@ -0,0 +1,43 @@
+package de.lefti.schedule;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock of a simulation, only advanced by the simulation.
+ */
+final class VirtualClock extends Clock {
+
+	private final ZoneId _zone;
+	private volatile long _millis;
+
+	VirtualClock(long millis, ZoneId zone) {
+		_millis = millis;
+		_zone = zone;
+	}
+
+	void set(long millis) {
+		_millis = millis;
+	}
+
+	@Override
+	public long millis() {
+		return _millis;
+	}
+
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(_millis);
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return _zone;
+	}
+
+	@Override
+	public Clock withZone(ZoneId zone) {
+		return Clock.fixed(instant(), zone);
+	}
+}
@@ -0,0 +1,30 @@
+package de.lefti.schedule;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads. Virtual threads require Java 21, this is the fallback for older versions. The Java 21
+ * implementation is located in the versioned part of the multi-release jar.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return {@code true} if virtual threads are available; {@code false} else
+	 */
+	static boolean isSupported() {
+		return false;
+	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 *
+	 * @param name name of the scheduler, used to name the virtual threads
+	 * @return new executor
+	 */
+	static ExecutorService newExecutor(String name) {
+		throw new UnsupportedOperationException("virtual threads require Java 21");
+	}
+}
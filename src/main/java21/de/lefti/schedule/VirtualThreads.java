@@ -0,0 +1,30 @@
+package de.lefti.schedule;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, used when running on Java 21 or newer.
+ */
+final class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return {@code true} if virtual threads are available; {@code false} else
+	 */
+	static boolean isSupported() {
+		return true;
+	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 *
+	 * @param name name of the scheduler, used to name the virtual threads
+	 * @return new executor
+	 */
+	static ExecutorService newExecutor(String name) {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-Worker-", 1).factory());
+	}
+}
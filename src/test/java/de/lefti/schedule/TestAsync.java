@@ -0,0 +1,147 @@
+package de.lefti.schedule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on asynchronous tasks, which are finished when their stage completes.
+ */
+public class TestAsync {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	private static final Instant START = Instant.parse("2024-01-15T12:00:00Z");
+
+	@Test
+	public void testNoThreadWaitsForCompletion() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Scheduler scheduler = new Scheduler().useClock(Clock.fixed(START, BERLIN)).useExecutor(executor)
+				.useMetrics(true);
+		Executor delayed = CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS);
+		CountDownLatch completions = new CountDownLatch(500);
+		List<Schedule> schedules = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			// due at once with the fixed clock, and never again
+			schedules.add(scheduler.every(10).seconds().taskAsync(() -> CompletableFuture.runAsync(completions::countDown,
+					delayed)));
+		}
+		long start = System.nanoTime();
+		scheduler.runAll(schedules);
+
+		// blocking two threads for each execution would take 50 seconds
+		assertTrue(completions.await(5, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+		waitUntil(() -> scheduler.metrics().getExecutions().getExecutions() == 500);
+		// the run time lasts until the completion of the stage
+		assertTrue(scheduler.metrics().getExecutions().getAverageExecutionTime().toMillis() >= 150);
+		scheduler.shutdown();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testOverlapUntilCompletion() {
+		Scheduler scheduler = new Scheduler().useMetrics(true);
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		List<CompletableFuture<Void>> started = new ArrayList<>();
+		Schedule schedule = scheduler.every().second().onOverlap(OverlapPolicy.SKIP).runAsync(() -> {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			started.add(future);
+			return future;
+		});
+
+		simulation.advanceBy(Duration.ofSeconds(10));
+		assertEquals(1, started.size());
+		assertEquals(10, schedule.metrics().getSkipped());
+		assertEquals(1, schedule.metrics().getInFlight());
+
+		started.get(0).complete(null);
+		simulation.advanceBy(Duration.ofSeconds(1));
+		assertEquals(2, started.size());
+		assertEquals(1, schedule.metrics().getExecutions());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testFailures() {
+		Scheduler scheduler = new Scheduler().useMetrics(true);
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		AtomicInteger calls = new AtomicInteger();
+		Schedule failing = scheduler.every().second().onOverlap(OverlapPolicy.SKIP).runAsync(() -> {
+			if (calls.incrementAndGet() % 2 == 0) {
+				throw new IllegalStateException("expected failure");
+			}
+			return CompletableFuture.failedFuture(new IllegalStateException("expected failure"));
+		});
+		Schedule empty = scheduler.every().second().runAsync(() -> null);
+
+		simulation.advanceBy(Duration.ofSeconds(3));
+		// failed executions release their place
+		assertEquals(4, calls.get());
+		assertEquals(4, failing.metrics().getFailures());
+		assertEquals(0, failing.metrics().getSkipped());
+		assertEquals(4, empty.metrics().getFailures());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testAsyncTasksAreRestored() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("async.snapshot");
+		Scheduler first = new Scheduler();
+		Simulation before = first.simulate(START, BERLIN);
+		first.every().second().key("async").onOverlap(OverlapPolicy.SKIP).runAsync(CompletableFuture::new);
+		first.every().second().key("ticks").publish(new TickPublisher());
+		before.advanceBy(Duration.ofSeconds(1));
+		first.snapshot(file);
+		first.shutdown();
+
+		Scheduler second = new Scheduler().useMetrics(true);
+		Simulation simulation = second.simulate(START, BERLIN);
+		TickPublisher publisher = new TickPublisher();
+		Map<String, Schedule> restored = second.restore(file, (key, schedule) -> {
+			if (key.equals("async")) {
+				schedule.taskAsync(CompletableFuture::new);
+			} else {
+				schedule.task(publisher);
+			}
+		});
+		assertEquals(2, restored.size());
+
+		// continuing with the execution after the snapshot, two seconds after the start
+		simulation.advanceBy(Duration.ofSeconds(5));
+		// still running, as the stage never completes
+		assertEquals(1, restored.get("async").metrics().getInFlight());
+		assertEquals(4, restored.get("ticks").metrics().getExecutions());
+		second.shutdown();
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+}
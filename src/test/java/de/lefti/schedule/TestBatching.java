@@ -0,0 +1,90 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on handing over executions due at the same time in batches.
+ */
+public class TestBatching {
+
+	private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-01-15T12:00:00Z"), ZoneId.of("UTC"));
+
+	@Test
+	public void testDueExecutionsAreBatched() throws InterruptedException {
+		CountingExecutor executor = new CountingExecutor();
+		Scheduler scheduler = new Scheduler().useClock(CLOCK).useExecutor(executor).useBatching(64);
+		CountDownLatch executions = new CountDownLatch(200);
+		List<Schedule> schedules = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			// due at once with the fixed clock, and never again
+			schedules.add(scheduler.every(10).seconds().task(executions::countDown));
+		}
+		scheduler.runAll(schedules);
+
+		assertTrue(executions.await(5, TimeUnit.SECONDS));
+		assertEquals(4, executor._handovers.get());
+		scheduler.shutdown();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testFailuresOnlyFailTheirExecution() throws InterruptedException {
+		CountingExecutor executor = new CountingExecutor();
+		Scheduler scheduler = new Scheduler().useClock(CLOCK).useExecutor(executor).useBatching(10).useMetrics(true);
+		CountDownLatch executions = new CountDownLatch(4);
+		Runnable failing = () -> {
+			executions.countDown();
+			throw new IllegalStateException("expected failure");
+		};
+		List<Schedule> schedules = new ArrayList<>();
+		schedules.add(scheduler.every(10).seconds().task(executions::countDown));
+		schedules.add(scheduler.every(10).seconds().onOverlap(OverlapPolicy.SKIP).task(failing));
+		schedules.add(scheduler.every(10).seconds().onOverlap(OverlapPolicy.SKIP).task(executions::countDown));
+		schedules.add(scheduler.every(10).seconds().task(executions::countDown));
+		scheduler.runAll(schedules);
+
+		assertTrue(executions.await(5, TimeUnit.SECONDS));
+		assertEquals(1, executor._handovers.get());
+		scheduler.shutdown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(4, scheduler.metrics().getExecutions().getExecutions());
+		assertEquals(1, scheduler.metrics().getExecutions().getFailures());
+		// guarded executions are released after running in a batch
+		assertEquals(Schedule.ADMITTED, schedules.get(1).admit(0));
+		assertEquals(Schedule.ADMITTED, schedules.get(2).admit(0));
+	}
+
+	@Test(expected = ScheduleException.class)
+	public void testInvalidBatchSize() {
+		new Scheduler().useBatching(0);
+	}
+
+	private static final class CountingExecutor extends ThreadPoolExecutor {
+		private final AtomicInteger _handovers = new AtomicInteger();
+
+		private CountingExecutor() {
+			super(2, 2, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			_handovers.incrementAndGet();
+			super.execute(command);
+		}
+	}
+}
@@ -5,29 +5,17 @@ import org.junit.Test;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
-import java.util.Set;
 
 public class TestCoreScheduler {
 
-	Set<Schedule> taskSet;
+	Scheduler coreScheduler;
 	boolean flag = false;
 	final static int MILLIS = 1000;
 
-	@SuppressWarnings("unchecked")
-	public TestCoreScheduler() throws NoSuchFieldException, IllegalAccessException {
-		var scheduler = Schedule.class.getDeclaredField("_coreScheduler");
-		scheduler.setAccessible(true);
-		var optionalClass = Arrays.stream(Schedule.class.getDeclaredClasses())
-				.filter(c -> c.getSimpleName().equals("CoreScheduler")).findAny();
-
-		Assert.assertTrue(optionalClass.isPresent());
-		var tasks = optionalClass.get().getDeclaredField("_scheduledTasks");
-		tasks.setAccessible(true);
-		var instance = scheduler.get(Schedule.class);
-		taskSet = (Set<Schedule>) tasks.get(instance);
+	public TestCoreScheduler() {
+		coreScheduler = Schedule.defaultScheduler();
 		// clear it in case other tests have been running beforehand
-		taskSet.clear();
+		coreScheduler.shutdown();
 	}
 
 	@Test
@@ -36,17 +24,17 @@ public class TestCoreScheduler {
 		var timeToWait = timeToKill * 2;
 
 		Assert.assertFalse(flag);
-		Assert.assertEquals(0, taskSet.size());
+		Assert.assertEquals(0, awaitScheduledTasks(0));
 		Schedule toCancel = Schedule.every().second().run(() -> System.out.println("[" + LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME) + "] " + "This will run only a few times"));
 
-		Assert.assertEquals(1, taskSet.size());
+		Assert.assertEquals(1, awaitScheduledTasks(1));
 		Schedule.once().minute().at(String.format(":%02d", LocalDateTime.now().plusSeconds(timeToKill).getSecond())).run(() -> {
 			toCancel.cancel();
 			delayedNotify(MILLIS);
 		});
-		Assert.assertEquals(2, taskSet.size());
+		Assert.assertEquals(2, awaitScheduledTasks(2));
 		this.wait(timeToWait * MILLIS);
-		Assert.assertEquals(0, taskSet.size());
+		Assert.assertEquals(0, awaitScheduledTasks(0));
 		System.out.println("[" + LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME) + "] " + "Notified to proceed, no tasks scheduled");
 
 		Schedule.once().minute().at(String.format(":%02d", LocalDateTime.now().plusSeconds(timeToKill).getSecond())).run(() -> {
@@ -56,10 +44,20 @@ public class TestCoreScheduler {
 		});
 		this.wait(timeToWait * MILLIS);
 		Assert.assertTrue(flag);
-		Assert.assertEquals(0, taskSet.size());
+		Assert.assertEquals(0, awaitScheduledTasks(0));
 		System.out.println("[" + LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME) + "] " + "Notified to proceed, no tasks scheduled");
 	}
 
+	private int awaitScheduledTasks(int expectedTasks) throws InterruptedException {
+		// the core scheduler picks up new tasks and removes due tasks in its own thread, so give it some time
+		int size = coreScheduler.size();
+		for (int i = 0; i < 10 && size != expectedTasks; i++) {
+			Thread.sleep(10);
+			size = coreScheduler.size();
+		}
+		return size;
+	}
+
 	private synchronized void delayedNotify(int millis) {
 		try {
 			this.wait(millis);
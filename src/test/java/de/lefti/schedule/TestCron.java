@@ -0,0 +1,201 @@
+package de.lefti.schedule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * This test class focuses on tasks scheduled by cron expressions.
+ */
+public class TestCron {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	private static final Runnable NOTHING = () -> {
+	};
+
+	@Test
+	public void testWeekdaysDuringOfficeHours() {
+		Scheduler scheduler = new Scheduler();
+		// Monday
+		Instant start = ZonedDateTime.of(2024, 1, 15, 0, 0, 0, 0, BERLIN).toInstant();
+		Simulation simulation = scheduler.simulate(start, BERLIN);
+		List<ZonedDateTime> executions = new ArrayList<>();
+		scheduler.cron("0 */15 8-17 * * MON-FRI").run(() -> executions.add(simulation.now().atZone(BERLIN)));
+
+		simulation.advanceBy(Duration.ofDays(7));
+		assertEquals(5 * 10 * 4, executions.size());
+		assertEquals(ZonedDateTime.of(2024, 1, 15, 8, 0, 0, 0, BERLIN), executions.get(0));
+		assertEquals(ZonedDateTime.of(2024, 1, 15, 17, 45, 0, 0, BERLIN), executions.get(39));
+		assertEquals(ZonedDateTime.of(2024, 1, 19, 17, 45, 0, 0, BERLIN), executions.get(199));
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testDaylightSavingTime() {
+		CronExpression cron = CronExpression.parse("30 2 * * *");
+		// skipped by the change to summer time, run at the shifted time
+		long before = ZonedDateTime.of(2024, 3, 31, 0, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+		assertEquals(ZonedDateTime.of(2024, 3, 31, 3, 30, 0, 0, BERLIN).toInstant().toEpochMilli(),
+				cron.next(before, BERLIN));
+		// repeated by the change to winter time, run only once
+		before = ZonedDateTime.of(2024, 10, 27, 0, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+		long next = cron.next(before, BERLIN);
+		assertEquals(ZonedDateTime.of(2024, 10, 27, 2, 30, 0, 0, BERLIN).withEarlierOffsetAtOverlap().toInstant()
+				.toEpochMilli(), next);
+		assertEquals(ZonedDateTime.of(2024, 10, 28, 2, 30, 0, 0, BERLIN).toInstant().toEpochMilli(),
+				cron.next(next, BERLIN));
+	}
+
+	@Test
+	public void testDayOfMonthOrDayOfWeek() {
+		// the 13th and every Friday
+		CronExpression cron = CronExpression.parse("0 0 13 * 5");
+		long timestamp = LocalDateTime.of(2024, 9, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+		int[] expected = {6, 13, 20, 27};
+		for (int day : expected) {
+			timestamp = cron.next(timestamp, ZoneOffset.UTC);
+			assertEquals(LocalDateTime.of(2024, 9, day, 0, 0), LocalDateTime.ofEpochSecond(timestamp / 1000, 0,
+					ZoneOffset.UTC));
+		}
+		// leap days only
+		cron = CronExpression.parse("0 12 29 FEB ?");
+		timestamp = LocalDateTime.of(2024, 3, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+		timestamp = cron.next(timestamp, ZoneOffset.UTC);
+		assertEquals(LocalDateTime.of(2028, 2, 29, 12, 0), LocalDateTime.ofEpochSecond(timestamp / 1000, 0,
+				ZoneOffset.UTC));
+	}
+
+	@Test
+	public void testSameAsSteppingThroughMinutes() {
+		Random random = new Random(1);
+		for (int i = 0; i < 200; i++) {
+			boolean[][] allowed = new boolean[5][];
+			StringBuilder expression = new StringBuilder();
+			int[][] ranges = {{0, 59}, {0, 23}, {1, 31}, {1, 12}, {0, 6}};
+			for (int field = 0; field < 5; field++) {
+				allowed[field] = new boolean[ranges[field][1] + 1];
+				expression.append(field == 0 ? "" : " ").append(randomField(random, ranges[field][0],
+						ranges[field][1], allowed[field]));
+			}
+			String text = expression.toString();
+			CronExpression cron;
+			try {
+				cron = CronExpression.parse(text);
+			} catch (TimeFormatException e) {
+				// never matches, e.g. only on the 31st of April
+				continue;
+			}
+			boolean anyDay = text.split(" ")[2].startsWith("*");
+			boolean anyDayOfWeek = text.split(" ")[4].startsWith("*");
+			LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0).plusMinutes(random.nextInt(2 * 365 * 1440));
+			LocalDateTime expected = start.plusMinutes(1);
+			while (!matches(expected, allowed, anyDay, anyDayOfWeek)) {
+				expected = expected.plusMinutes(1);
+			}
+			long next = cron.next(start.toInstant(ZoneOffset.UTC).toEpochMilli(), ZoneOffset.UTC);
+			assertEquals(text + " after " + start, expected.toInstant(ZoneOffset.UTC).toEpochMilli(), next);
+		}
+	}
+
+	@Test
+	public void testInvalidExpressions() {
+		String[] invalid = {"", "* * * *", "* * * * * * *", "60 * * * *", "* 24 * * *", "* * 0 * *", "* * * 13 *",
+				"* * * * 8", "5-1 * * * *", "*/0 * * * *", "a * * * *", "1,,2 * * * *", "* * 30 FEB *", "* * 31 4,6 *"};
+		for (String expression : invalid) {
+			try {
+				CronExpression.parse(expression);
+				fail(expression);
+			} catch (TimeFormatException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testCronTasksAreRestored() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("cron.snapshot");
+		Scheduler first = new Scheduler();
+		Schedule schedule = first.cron("0 */15 8-17 ? JAN,MAR-MAY MON-FRI").key("cron")
+				.spread(Duration.ofMinutes(1)).run(NOTHING);
+		first.snapshot(file);
+		first.shutdown();
+
+		Scheduler second = new Scheduler();
+		Map<String, Schedule> restored = second.restore(file, key -> NOTHING);
+		Schedule actual = restored.get("cron");
+		assertEquals(schedule._nextExecution, actual._nextExecution);
+		assertEquals(schedule.nextExecutionTimestamp(), actual.nextExecutionTimestamp());
+		second.shutdown();
+	}
+
+	@Test
+	public void testMissedExecutionsAreSkippedAtOnce() {
+		Scheduler scheduler = new Scheduler();
+		Instant start = ZonedDateTime.of(2024, 1, 15, 0, 0, 0, 0, BERLIN).toInstant();
+		scheduler.simulate(start, BERLIN);
+		Schedule schedule = scheduler.cron("0 9 * * *").task(NOTHING);
+		schedule._nextExecution = schedule.nextExecutionTimestamp();
+		long now = start.plus(Duration.ofDays(100)).toEpochMilli();
+		assertEquals(ZonedDateTime.of(2024, 4, 24, 9, 0, 0, 0, BERLIN).toInstant().toEpochMilli(),
+				schedule.nextExecutionTimestampAfter(now));
+		scheduler.shutdown();
+	}
+
+	private static String randomField(Random random, int min, int max, boolean[] allowed) {
+		int kind = random.nextInt(5);
+		if (kind == 0) {
+			fill(allowed, min, max, 1);
+			return "*";
+		}
+		int from = min + random.nextInt(max - min + 1);
+		int to = from + random.nextInt(max - from + 1);
+		if (kind == 1) {
+			fill(allowed, from, from, 1);
+			return Integer.toString(from);
+		} else if (kind == 2) {
+			fill(allowed, from, to, 1);
+			return from + "-" + to;
+		} else if (kind == 3) {
+			int step = 1 + random.nextInt(Math.max(1, (max - min) / 2));
+			fill(allowed, min, max, step);
+			return "*/" + step;
+		}
+		int other = min + random.nextInt(max - min + 1);
+		fill(allowed, from, to, 2);
+		fill(allowed, other, other, 1);
+		return from + "-" + to + "/2," + other;
+	}
+
+	private static void fill(boolean[] allowed, int from, int to, int step) {
+		for (int value = from; value <= to; value += step) {
+			allowed[value] = true;
+		}
+	}
+
+	private static boolean matches(LocalDateTime time, boolean[][] allowed, boolean anyDay, boolean anyDayOfWeek) {
+		boolean day = allowed[2][time.getDayOfMonth()];
+		boolean dayOfWeek = allowed[4][time.getDayOfWeek().getValue() % 7];
+		boolean matchesDay = anyDay || anyDayOfWeek ? day && dayOfWeek : day || dayOfWeek;
+		return allowed[0][time.getMinute()] && allowed[1][time.getHour()] && matchesDay
+				&& allowed[3][time.getMonthValue()];
+	}
+}
@@ -0,0 +1,90 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on the priority queue engine by driving it with simulated timestamps.
+ */
+public class TestHeapTaskQueue {
+
+	private Schedule task(long nextExecution) {
+		Schedule task = Schedule.every().second();
+		task._nextExecution = nextExecution;
+		return task;
+	}
+
+	@Test
+	public void testTasksArePolledInOrderAfterRemovals() {
+		TaskQueue queue = new HeapTaskQueue();
+		Random random = new Random(42);
+		List<Schedule> tasks = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			Schedule task = task(random.nextInt(100_000));
+			tasks.add(task);
+			queue.add(task);
+		}
+		for (int i = 0; i < tasks.size(); i += 3) {
+			assertTrue(queue.remove(tasks.get(i)));
+			assertFalse(queue.remove(tasks.get(i)));
+		}
+		assertEquals(tasks.size() - (tasks.size() + 2) / 3, queue.size());
+
+		List<Schedule> due = new ArrayList<>();
+		queue.pollDue(Long.MAX_VALUE - 1, due);
+		assertEquals(0, queue.size());
+		assertEquals(Long.MAX_VALUE, queue.nextDeadline());
+		for (int i = 1; i < due.size(); i++) {
+			assertTrue(due.get(i - 1)._nextExecution <= due.get(i)._nextExecution);
+		}
+	}
+
+	@Test
+	public void testAddAllKeepsHeapOrder() {
+		TaskQueue queue = new HeapTaskQueue();
+		Random random = new Random(7);
+		queue.add(task(50_000));
+		List<Schedule> tasks = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			tasks.add(task(random.nextInt(100_000)));
+		}
+		queue.addAll(tasks);
+		queue.addAll(List.of(task(1), task(99_999)));
+		assertEquals(1003, queue.size());
+		assertEquals(1, queue.nextDeadline());
+
+		List<Schedule> due = new ArrayList<>();
+		queue.pollDue(Long.MAX_VALUE - 1, due);
+		assertEquals(1003, due.size());
+		for (int i = 1; i < due.size(); i++) {
+			assertTrue(due.get(i - 1)._nextExecution <= due.get(i)._nextExecution);
+		}
+	}
+
+	@Test
+	public void testCancelledTasksAreRemovedFromScheduler() {
+		Scheduler scheduler = new Scheduler();
+		// the simulation picks up the cancellations synchronously
+		Simulation simulation = scheduler.simulate(Instant.parse("2024-01-15T12:00:00Z"), ZoneId.of("UTC"));
+		List<Schedule> tasks = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			tasks.add(scheduler.every().day().at("08:00").run(() -> { }));
+		}
+		simulation.advanceBy(Duration.ZERO);
+		assertEquals(100, scheduler.size());
+		tasks.forEach(Schedule::cancel);
+		simulation.advanceBy(Duration.ZERO);
+		assertEquals(0, scheduler.size());
+		scheduler.shutdown();
+	}
+}
@@ -0,0 +1,264 @@
+package de.lefti.schedule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This test class focuses on recovering tasks from a journal.
+ */
+public class TestJournal {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final Runnable NOTHING = () -> {
+	};
+
+	@Test
+	public void testTasksAreRecovered() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Scheduler first = new Scheduler();
+		Journal journal = Journal.open(file);
+		first.useJournal(journal, key -> NOTHING);
+		Schedule hourly = first.every().hour().at("15:00").key("hourly").run(NOTHING);
+		Schedule yearly = first.once().at("12-24 18:00").key("yearly").run(NOTHING);
+		first.every().day().key("cancelled").run(NOTHING).cancel();
+		first.every().day().run(NOTHING);
+		first.shutdown();
+		journal.close();
+
+		Scheduler second = new Scheduler();
+		journal = Journal.open(file);
+		Map<String, Schedule> recovered = second.useJournal(journal, key -> NOTHING);
+		assertEquals(2, recovered.size());
+		assertEquals(hourly._nextExecution, recovered.get("hourly")._nextExecution);
+		assertEquals(yearly._nextExecution, recovered.get("yearly")._nextExecution);
+		assertFalse(recovered.get("yearly")._repeat);
+		// definitions are recovered as well
+		assertEquals(hourly.nextExecutionTimestamp(), recovered.get("hourly").nextExecutionTimestamp());
+		assertEquals(2, second.size());
+		second.shutdown();
+		journal.close();
+	}
+
+	@Test
+	public void testExecutionsAreRecorded() throws IOException, InterruptedException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Scheduler first = new Scheduler();
+		Journal journal = Journal.open(file);
+		first.useJournal(journal, key -> NOTHING);
+		CountDownLatch latch = new CountDownLatch(1);
+		first.once().key("once").run(latch::countDown);
+		Schedule repeated = first.every().hour().key("repeated").run(NOTHING);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		long nextExecution = repeated._nextExecution;
+		first.shutdown();
+		journal.close();
+
+		journal = Journal.open(file);
+		Scheduler second = new Scheduler();
+		Map<String, Schedule> recovered = second.useJournal(journal, key -> NOTHING);
+		// the finished task is not run again, the repeated one is not run before its next execution
+		assertEquals(1, recovered.size());
+		assertEquals(nextExecution, recovered.get("repeated")._nextExecution);
+		second.shutdown();
+		journal.close();
+	}
+
+	@Test
+	public void testExecutionsAreRecordedBeforeRunning() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Path copy = folder.getRoot().toPath().resolve("running.journal");
+		Journal journal = Journal.open(file);
+		Scheduler first = new Scheduler();
+		first.useJournal(journal, key -> NOTHING);
+		Simulation simulation = first.simulate(Instant.parse("2024-01-01T00:30:00Z"), ZoneId.of("UTC"));
+		// the journal as seen by a node dying while running the task
+		Schedule repeated = first.every().hour().at("00:00").key("repeated").run(() -> {
+			try {
+				Files.copy(file, copy);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		simulation.advanceBy(Duration.ofHours(1));
+		long nextExecution = repeated._nextExecution;
+		first.shutdown();
+		journal.close();
+
+		journal = Journal.open(copy);
+		Scheduler second = new Scheduler();
+		// simulated, so that the recovered task is not dispatched before it is checked
+		second.simulate(Instant.parse("2024-01-01T00:30:00Z"), ZoneId.of("UTC"));
+		Map<String, Schedule> recovered = second.useJournal(journal, key -> NOTHING);
+		assertEquals(nextExecution, recovered.get("repeated")._nextExecution);
+		second.shutdown();
+		journal.close();
+	}
+
+	@Test
+	public void testTasksWithoutRunnableAreRemoved() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Journal journal = Journal.open(file);
+		new Scheduler().useJournal(journal, key -> NOTHING);
+		Scheduler first = new Scheduler();
+		first.useJournal(journal, key -> NOTHING);
+		first.every().day().key("obsolete").run(NOTHING);
+		first.shutdown();
+
+		Scheduler second = new Scheduler();
+		assertTrue(second.useJournal(journal, key -> null).isEmpty());
+		assertEquals(0, journal.size());
+		journal.close();
+	}
+
+	@Test
+	public void testIncompleteWriteIsDiscarded() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Journal journal = Journal.open(file);
+		Scheduler scheduler = new Scheduler();
+		scheduler.useJournal(journal, key -> NOTHING);
+		scheduler.every().day().at("03:00").key("first").run(NOTHING);
+		scheduler.every().day().at("03:00").key("second").run(NOTHING);
+		scheduler.shutdown();
+		journal.close();
+
+		// damage the last byte of the second record
+		try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+			long position = 8;
+			for (int i = 0; i < 2; i++) {
+				raf.seek(position);
+				position += 8 + raf.readInt();
+			}
+			raf.seek(position - 1);
+			int last = raf.read();
+			raf.seek(position - 1);
+			raf.write(last ^ 0xFF);
+		}
+
+		journal = Journal.open(file);
+		assertEquals(1, journal.size());
+		Map<String, Schedule> recovered = new Scheduler().useJournal(journal, key -> NOTHING);
+		assertNotNull(recovered.get("first"));
+		recovered.get("first")._scheduler.shutdown();
+		journal.close();
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Journal journal = Journal.open(file);
+		Scheduler scheduler = new Scheduler();
+		scheduler.useJournal(journal, key -> NOTHING);
+		Schedule kept = scheduler.every().day().key("kept").run(NOTHING);
+		for (int i = 0; i < 50_000; i++) {
+			scheduler.every().day().key("task-" + i).run(NOTHING).cancel();
+		}
+		scheduler.shutdown();
+		// compacted automatically once the journal exceeds its initial size
+		assertTrue(Files.size(file) <= 2 << 20);
+		journal.compact();
+		assertEquals(1, journal.size());
+		journal.close();
+
+		journal = Journal.open(file);
+		Map<String, Schedule> recovered = new Scheduler().useJournal(journal, key -> NOTHING);
+		assertEquals(1, recovered.size());
+		assertEquals(kept._nextExecution, recovered.get("kept")._nextExecution);
+		recovered.get("kept")._scheduler.shutdown();
+		journal.close();
+	}
+
+	@Test
+	public void testFailedCompactionKeepsJournal() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		Journal journal = Journal.open(file);
+		Scheduler scheduler = new Scheduler();
+		scheduler.useJournal(journal, key -> NOTHING);
+		scheduler.every().day().key("before").run(NOTHING);
+		// the compacted journal cannot be written where a non-empty directory is in the way, whatever the permissions
+		Path temp = Files.createDirectory(folder.getRoot().toPath().resolve("schedules.journal.tmp"));
+		Files.createFile(temp.resolve("blocking"));
+		try {
+			journal.compact();
+			fail("compaction should have failed");
+		} catch (IOException e) {
+			// expected
+		}
+		scheduler.every().day().key("after").run(NOTHING);
+		scheduler.shutdown();
+		journal.close();
+
+		journal = Journal.open(file);
+		Map<String, Schedule> recovered = new Scheduler().useJournal(journal, key -> NOTHING);
+		assertEquals(2, recovered.size());
+		recovered.get("after")._scheduler.shutdown();
+		journal.close();
+	}
+
+	@Test
+	public void testFailedAutomaticCompactionMakesJournalUnusable() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("schedules.journal");
+		// the compacted journal cannot be written where a non-empty directory is in the way
+		Path temp = Files.createDirectory(folder.getRoot().toPath().resolve("schedules.journal.tmp"));
+		Files.createFile(temp.resolve("blocking"));
+		Journal journal = Journal.open(file);
+		Scheduler scheduler = new Scheduler();
+		scheduler.useJournal(journal, key -> NOTHING);
+		scheduler.every().day().key("kept").run(NOTHING);
+		int registered = 0;
+		try {
+			for (; registered < 50_000; registered++) {
+				scheduler.every().day().key("task-" + registered).run(NOTHING).cancel();
+			}
+			fail("compaction should have failed");
+		} catch (ScheduleException e) {
+			assertTrue(e.getMessage().startsWith("journal unusable"));
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertTrue(registered > 0);
+		// following changes are rejected as well instead of being lost silently
+		try {
+			scheduler.every().day().key("after").run(NOTHING);
+			fail("journal should be unusable");
+		} catch (ScheduleException e) {
+			assertTrue(e.getMessage().startsWith("journal unusable"));
+		}
+		scheduler.shutdown();
+		journal.close();
+
+		journal = Journal.open(file);
+		Map<String, Schedule> recovered = new Scheduler().useJournal(journal, key -> NOTHING);
+		// everything recorded before the failure is recovered
+		assertTrue(recovered.containsKey("kept"));
+		assertFalse(recovered.containsKey("after"));
+		recovered.get("kept")._scheduler.shutdown();
+		journal.close();
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherFilesAreRejected() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("other");
+		Files.write(file, "no journal".getBytes());
+		Journal.open(file);
+	}
+}
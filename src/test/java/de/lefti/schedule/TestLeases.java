@@ -0,0 +1,153 @@
+package de.lefti.schedule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This test class focuses on running each execution on only one of several nodes.
+ */
+public class TestLeases {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	// not aligned to a full minute on purpose
+	private static final Instant START = ZonedDateTime.of(2024, 1, 15, 12, 0, 0, 123_000_000, BERLIN).toInstant();
+
+	@Test
+	public void testEachExecutionRunsOnce() throws IOException {
+		Path directory = folder.getRoot().toPath().resolve("leases");
+		AtomicInteger executions = new AtomicInteger();
+		AtomicInteger unkeyed = new AtomicInteger();
+		Simulation[] nodes = new Simulation[3];
+		Scheduler[] schedulers = new Scheduler[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			schedulers[i] = new Scheduler().useLeases(new FileLeaseProvider(directory, "node-" + i, Duration.ofDays(1)));
+			// nodes are started at slightly different times
+			nodes[i] = schedulers[i].simulate(START.plusMillis(i * 7), BERLIN);
+			schedulers[i].every().minute().key("minutely").run(executions::incrementAndGet);
+			schedulers[i].every().day().at("18:00").key("daily").run(executions::incrementAndGet);
+			schedulers[i].every().hour().run(unkeyed::incrementAndGet);
+		}
+		for (int hour = 1; hour <= 6; hour++) {
+			for (Simulation node : nodes) {
+				node.advanceTo(START.plus(Duration.ofHours(hour)));
+			}
+		}
+		// executions from 12:01 to 18:00, plus the daily one
+		assertEquals(360 + 1, executions.get());
+		// tasks without key run on every node
+		assertEquals(nodes.length * 6, unkeyed.get());
+		for (Scheduler scheduler : schedulers) {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testTargetTimeIsAlignedToInterval() throws IOException {
+		Path directory = folder.getRoot().toPath().resolve("leases");
+		List<Instant> executions = new ArrayList<>();
+		Simulation[] nodes = new Simulation[3];
+		Scheduler[] schedulers = new Scheduler[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			schedulers[i] = new Scheduler().useLeases(new FileLeaseProvider(directory, "node-" + i, Duration.ofDays(1)));
+			// nodes are started minutes apart
+			Simulation node = schedulers[i].simulate(START.plus(Duration.ofSeconds(i * 100)), BERLIN);
+			nodes[i] = node;
+			schedulers[i].every(5).minutes().at(":30").key("five").run(() -> executions.add(node.now()));
+		}
+		for (Simulation node : nodes) {
+			node.advanceTo(START.plus(Duration.ofHours(1)));
+		}
+		// executions from 12:00:30 to 12:55:30
+		assertEquals(12, executions.size());
+		for (Instant execution : executions) {
+			assertEquals(30, execution.getEpochSecond() % 300);
+		}
+		for (Scheduler scheduler : schedulers) {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testTasksPlannedPerNodeAreRejected() {
+		Scheduler scheduler = new Scheduler().useLeases((key, plannedExecution) -> true);
+		scheduler.simulate(START, BERLIN);
+		assertRejected(() -> scheduler.once().key("once").run(() -> { }));
+		assertRejected(() -> scheduler.every().day().key("daily").run(() -> { }));
+		assertRejected(() -> scheduler.every(2).days().at("18:00").key("two days").run(() -> { }));
+		assertRejected(() -> scheduler.every().week().at("18:00").key("weekly").run(() -> { }));
+		assertEquals(0, scheduler.size());
+		// planned alike on all nodes
+		scheduler.once().at("12-24 18:00").key("once").run(() -> { });
+		scheduler.every().monday().at("18:00").key("weekly").run(() -> { });
+		scheduler.every(2).hours().key("two hours").run(() -> { });
+		scheduler.cron("0 18 * * *").key("cron").run(() -> { });
+		// tasks without key are run on every node anyway
+		scheduler.every().day().run(() -> { });
+		scheduler.shutdown();
+	}
+
+	@Test(expected = ScheduleException.class)
+	public void testLeasesAreSetBeforeScheduling() {
+		Scheduler scheduler = new Scheduler();
+		scheduler.simulate(START, BERLIN);
+		scheduler.every().minute().key("minutely").run(() -> { });
+		scheduler.useLeases((key, plannedExecution) -> true);
+	}
+
+	private static void assertRejected(Runnable registration) {
+		try {
+			registration.run();
+			fail("task should have been rejected");
+		} catch (ScheduleException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLeaseIsGrantedOnce() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		LeaseProvider first = new FileLeaseProvider(directory, "first", Duration.ofDays(1));
+		LeaseProvider second = new FileLeaseProvider(directory, "second", Duration.ofDays(1));
+		String key = "some/key with: special characters";
+		long now = System.currentTimeMillis();
+		assertTrue(first.tryAcquire(key, now));
+		assertFalse(second.tryAcquire(key, now));
+		assertFalse(first.tryAcquire(key, now));
+		assertTrue(second.tryAcquire(key, now + 1));
+		assertTrue(first.tryAcquire(new String(new char[1000]).replace('\0', 'x'), now));
+	}
+
+	@Test
+	public void testOldLeasesAreRemoved() throws IOException {
+		Path directory = folder.getRoot().toPath();
+		LeaseProvider leases = new FileLeaseProvider(directory, "node", Duration.ofHours(1));
+		long start = ZonedDateTime.of(2024, 1, 15, 12, 0, 0, 0, BERLIN).toInstant().toEpochMilli();
+		for (int minute = 0; minute < 180; minute++) {
+			assertTrue(leases.tryAcquire("task", start + minute * 60_000L));
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			assertTrue(files.count() <= 121);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on the metrics of schedulers and their tasks.
+ */
+public class TestMetrics {
+
+	@Test
+	public void testMetricsAreDisabledByDefault() throws InterruptedException {
+		Scheduler scheduler = new Scheduler();
+		CountDownLatch latch = new CountDownLatch(1);
+		Schedule schedule = scheduler.every().second().run(latch::countDown);
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertFalse(scheduler.isUsingMetrics());
+		assertEquals(1, scheduler.metrics().getScheduledTasks());
+		assertEquals(0, scheduler.metrics().getExecutions().getExecutions());
+		assertEquals(0, schedule.metrics().getExecutions());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testExecutionsAndFailuresAreCounted() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Scheduler scheduler = new Scheduler().useMetrics(true).useExecutor(executor);
+		CountDownLatch latch = new CountDownLatch(2);
+		Schedule succeeding = scheduler.every().second().run(() -> {
+			latch.countDown();
+			sleep(20);
+		});
+		Schedule failing = scheduler.every().second().run(() -> {
+			latch.countDown();
+			sleep(20);
+			throw new IllegalStateException("expected failure");
+		});
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		scheduler.shutdown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		ScheduleMetrics succeedingMetrics = succeeding.metrics();
+		assertTrue(succeedingMetrics.getExecutions() >= 1);
+		assertEquals(0, succeedingMetrics.getFailures());
+		assertEquals(0, succeedingMetrics.getInFlight());
+		assertTrue(succeedingMetrics.getMaxExecutionTime().toMillis() >= 20);
+
+		ScheduleMetrics failingMetrics = failing.metrics();
+		assertTrue(failingMetrics.getExecutions() >= 1);
+		assertEquals(failingMetrics.getExecutions(), failingMetrics.getFailures());
+
+		SchedulerMetrics metrics = scheduler.metrics();
+		assertEquals(succeedingMetrics.getExecutions() + failingMetrics.getExecutions(),
+				metrics.getExecutions().getExecutions());
+		assertEquals(failingMetrics.getFailures(), metrics.getExecutions().getFailures());
+		assertEquals(0, metrics.getDueBacklog());
+		// the second task waits for the single worker
+		assertTrue(metrics.getExecutions().getMaxLateness().toMillis() >= 10);
+	}
+
+	@Test
+	public void testDueBacklogIsClearedOnShutdown() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		CountDownLatch release = new CountDownLatch(1);
+		// keeps the only worker busy, so that the executions wait in the queue of the executor
+		executor.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Scheduler scheduler = new Scheduler().useMetrics(true).useExecutor(executor);
+		CountDownLatch dispatched = new CountDownLatch(2);
+		scheduler.once().run(dispatched::countDown);
+		scheduler.once().run(dispatched::countDown);
+		for (int i = 0; i < 100 && scheduler.metrics().getDueBacklog() < 2; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(2, scheduler.metrics().getDueBacklog());
+		scheduler.shutdown();
+		assertEquals(2, executor.shutdownNow().size());
+		assertEquals(0, scheduler.metrics().getDueBacklog());
+		assertEquals(2, dispatched.getCount());
+		release.countDown();
+	}
+
+	@Test
+	public void testMBeanIsRegistered() throws Exception {
+		Scheduler scheduler = new Scheduler("Managed").useMetrics(true);
+		CountDownLatch latch = new CountDownLatch(1);
+		scheduler.every().second().run(latch::countDown);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+		ObjectName name = scheduler.registerMBean();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertTrue(server.isRegistered(name));
+		assertEquals(1, server.getAttribute(name, "ScheduledTasks"));
+		assertEquals(Boolean.TRUE, server.getAttribute(name, "MetricsEnabled"));
+
+		scheduler.unregisterMBean();
+		assertFalse(server.isRegistered(name));
+		scheduler.shutdown();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test class focuses on the handling of missed executions.
+ */
+public class TestMisfire {
+
+	@Test
+	public void testFireOnceRunsOnlyOnce() throws InterruptedException {
+		assertEquals(1, runAfterStall(MisfirePolicy.FIRE_ONCE));
+	}
+
+	@Test
+	public void testFireAllCatchesUp() throws InterruptedException {
+		assertEquals(11, runAfterStall(MisfirePolicy.FIRE_ALL));
+	}
+
+	@Test
+	public void testSkipDoesNotRun() throws InterruptedException {
+		assertEquals(0, runAfterStall(MisfirePolicy.SKIP));
+	}
+
+	@Test
+	public void testNextExecutionIsRealigned() {
+		Scheduler scheduler = new Scheduler();
+		Schedule schedule = scheduler.every(5).seconds();
+		schedule._nextExecution = 1_000;
+		assertEquals(26_000, schedule.nextExecutionTimestampAfter(23_500));
+		assertEquals(6_000, schedule.nextExecutionTimestampAfter(5_999));
+		assertEquals(11_000, schedule.nextExecutionTimestampAfter(6_000));
+
+		Schedule daily = scheduler.every().day();
+		ZonedDateTime start = ZonedDateTime.of(2024, 3, 1, 6, 0, 0, 0, ZoneId.systemDefault());
+		daily._nextExecution = start.toInstant().toEpochMilli();
+		long now = start.plusDays(10).plusHours(1).toInstant().toEpochMilli();
+		assertEquals(start.plusDays(11).toInstant().toEpochMilli(), daily.nextExecutionTimestampAfter(now));
+	}
+
+	/**
+	 * Schedules a task every second as if the scheduler had been stalled for ten and a half seconds.
+	 *
+	 * @return number of executions right after the stall
+	 */
+	private int runAfterStall(MisfirePolicy policy) throws InterruptedException {
+		Scheduler scheduler = new Scheduler();
+		AtomicInteger executions = new AtomicInteger();
+		Schedule schedule = scheduler.every().second().onMisfire(policy).task(executions::incrementAndGet);
+		schedule._nextExecution = System.currentTimeMillis() - 10_500;
+		scheduler.addTask(schedule);
+		Thread.sleep(300);
+		scheduler.shutdown();
+		return executions.get();
+	}
+}
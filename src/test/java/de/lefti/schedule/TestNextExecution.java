@@ -40,6 +40,41 @@ public class TestNextExecution {
 		}
 	}
 
+	/**
+	 * Seconds, minutes and hours are calculated without calendar, this must match adding them to a zoned date time,
+	 * even across daylight saving time changes.
+	 */
+	@Test
+	public void testFixedLengthUnitsMatchCalendar() throws IllegalAccessException, InvocationTargetException {
+		Schedule[] tasks = {
+				Schedule.every().second(), Schedule.every(45).seconds(),
+				Schedule.every().minute(), Schedule.every(15).minutes(),
+				Schedule.every().hour(), Schedule.every(7).hours()
+		};
+		ZonedDateTime[] starts = {
+				ZonedDateTime.now(),
+				ZonedDateTime.of(2021, 3, 28, 1, 30, 0, 0, ZoneId.of("Europe/Berlin")),
+				ZonedDateTime.of(2021, 10, 31, 1, 59, 59, 0, ZoneId.of("Europe/Berlin")),
+				ZonedDateTime.of(2021, 3, 14, 1, 0, 0, 0, ZoneId.of("America/New_York"))
+		};
+		ChronoUnit[] units = {ChronoUnit.SECONDS, ChronoUnit.SECONDS, ChronoUnit.MINUTES, ChronoUnit.MINUTES,
+				ChronoUnit.HOURS, ChronoUnit.HOURS};
+		int[] intervals = {1, 45, 1, 15, 1, 7};
+
+		for (int t = 0; t < tasks.length; t++) {
+			for (ZonedDateTime start : starts) {
+				ZonedDateTime expected = start;
+				nextExecution.setLong(tasks[t], start.toInstant().toEpochMilli());
+				for (int i = 0; i < 100; i++) {
+					expected = expected.plus(intervals[t], units[t]);
+					long next = (long) nextExecutionTimestamp.invoke(tasks[t]);
+					assertEquals(expected.toInstant().toEpochMilli(), next);
+					nextExecution.setLong(tasks[t], next);
+				}
+			}
+		}
+	}
+
 	@Test
 	public void testFirstOfMonth() throws IllegalAccessException, InvocationTargetException {
 		Schedule task = Schedule.every().month().at("-01");
@@ -0,0 +1,118 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on executions that are due while previous executions are still running.
+ */
+public class TestOverlap {
+
+	@Test
+	public void testSkipWhileRunning() throws InterruptedException {
+		Burst burst = new Burst(OverlapPolicy.SKIP, 1);
+		assertEquals(1, burst._started.get());
+		assertEquals(10, burst._schedule.metrics().getSkipped());
+		burst.finish();
+		assertEquals(1, burst._started.get());
+		assertEquals(1, burst._maxRunning.get());
+	}
+
+	@Test
+	public void testSkippedWithoutMetrics() throws InterruptedException {
+		Burst burst = new Burst(OverlapPolicy.SKIP, 1, false);
+		assertEquals(1, burst._started.get());
+		assertEquals(10, burst._schedule.metrics().getSkipped());
+		assertEquals(0, burst._schedule.metrics().getExecutions());
+		burst.finish();
+	}
+
+	@Test
+	public void testQueueOnePending() throws InterruptedException {
+		Burst burst = new Burst(OverlapPolicy.QUEUE, 1);
+		assertEquals(1, burst._started.get());
+		assertEquals(9, burst._schedule.metrics().getSkipped());
+		burst.finish();
+		assertEquals(2, burst._started.get());
+		assertEquals(1, burst._maxRunning.get());
+	}
+
+	@Test
+	public void testConcurrentLimit() throws InterruptedException {
+		Burst burst = new Burst(OverlapPolicy.SKIP, 3);
+		assertEquals(3, burst._started.get());
+		assertEquals(8, burst._schedule.metrics().getSkipped());
+		burst.finish();
+		assertEquals(3, burst._maxRunning.get());
+	}
+
+	@Test
+	public void testAllowIsUnlimited() throws InterruptedException {
+		Burst burst = new Burst(OverlapPolicy.ALLOW, 1);
+		assertEquals(11, burst._started.get());
+		assertEquals(0, burst._schedule.metrics().getSkipped());
+		burst.finish();
+	}
+
+	@Test(expected = ScheduleException.class)
+	public void testInvalidLimit() {
+		new Scheduler().every().second().onOverlap(OverlapPolicy.SKIP, 0);
+	}
+
+	/**
+	 * Runs a blocking task eleven times in a row, as if the scheduler had been stalled for ten and a half seconds.
+	 */
+	private static final class Burst {
+		private final ExecutorService _executor = Executors.newCachedThreadPool();
+		private final Scheduler _scheduler;
+		private final CountDownLatch _release = new CountDownLatch(1);
+		private final AtomicInteger _started = new AtomicInteger();
+		private final AtomicInteger _running = new AtomicInteger();
+		private final AtomicInteger _maxRunning = new AtomicInteger();
+		private final Schedule _schedule;
+
+		private Burst(OverlapPolicy policy, int maxConcurrent) throws InterruptedException {
+			this(policy, maxConcurrent, true);
+		}
+
+		private Burst(OverlapPolicy policy, int maxConcurrent, boolean metrics) throws InterruptedException {
+			_scheduler = new Scheduler().useMetrics(metrics).useExecutor(_executor);
+			_schedule = _scheduler.every().second().onMisfire(MisfirePolicy.FIRE_ALL)
+					.onOverlap(policy, maxConcurrent).task(this::block);
+			_schedule._nextExecution = System.currentTimeMillis() - 10_500;
+			_scheduler.addTask(_schedule);
+			Thread.sleep(300);
+		}
+
+		private void block() {
+			_started.incrementAndGet();
+			_maxRunning.accumulateAndGet(_running.incrementAndGet(), Math::max);
+			try {
+				_release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			_running.decrementAndGet();
+		}
+
+		private void finish() throws InterruptedException {
+			_release.countDown();
+			long deadline = System.currentTimeMillis() + 5_000;
+			while (_schedule.metrics().getInFlight() > 0 || _running.get() > 0) {
+				assertTrue(System.currentTimeMillis() < deadline);
+				Thread.sleep(10);
+			}
+			Thread.sleep(100);
+			_scheduler.shutdown();
+			_executor.shutdown();
+		}
+	}
+}
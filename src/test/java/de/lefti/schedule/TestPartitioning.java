@@ -0,0 +1,233 @@
+package de.lefti.schedule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on splitting the tasks across the nodes of a cluster.
+ */
+public class TestPartitioning {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	private static final Instant START = ZonedDateTime.of(2024, 1, 15, 12, 0, 0, 0, BERLIN).toInstant();
+	private static final int TASKS = 1000;
+	private static final Runnable NOTHING = () -> {
+	};
+
+	@Test
+	public void testOnlyKeysOfLeavingNodeMove() {
+		NodeRing three = NodeRing.of(Arrays.asList("node-0", "node-1", "node-2"));
+		NodeRing two = NodeRing.of(Arrays.asList("node-0", "node-1"));
+		int[] owned = new int[3];
+		for (int i = 0; i < TASKS; i++) {
+			String before = three.owner("task-" + i);
+			String after = two.owner("task-" + i);
+			owned[before.charAt(5) - '0']++;
+			if (!before.equals("node-2")) {
+				assertEquals(before, after);
+			}
+		}
+		for (int count : owned) {
+			assertTrue(count > TASKS / 5);
+		}
+		assertNull(NodeRing.of(Collections.emptyList()).owner("task"));
+	}
+
+	@Test
+	public void testEachTaskRunsOnOneNode() {
+		NodeRing ring = NodeRing.of(Arrays.asList("node-0", "node-1", "node-2"));
+		AtomicInteger executions = new AtomicInteger();
+		AtomicInteger unkeyed = new AtomicInteger();
+		Scheduler[] schedulers = new Scheduler[3];
+		Simulation[] nodes = new Simulation[3];
+		for (int i = 0; i < nodes.length; i++) {
+			schedulers[i] = new Scheduler().usePartitioning("node-" + i, ring, key -> executions::incrementAndGet);
+			nodes[i] = schedulers[i].simulate(START, BERLIN);
+			for (int task = 0; task < TASKS; task++) {
+				schedulers[i].every().minute().key("task-" + task).run(executions::incrementAndGet);
+			}
+			schedulers[i].every().hour().run(unkeyed::incrementAndGet);
+		}
+		for (Simulation node : nodes) {
+			node.advanceTo(START.plus(Duration.ofMinutes(10)));
+		}
+		int size = 0;
+		for (Scheduler scheduler : schedulers) {
+			// some keyed tasks and the unkeyed one
+			assertTrue(scheduler.size() > TASKS / 5);
+			size += scheduler.size();
+		}
+		assertEquals(TASKS + nodes.length, size);
+		// first executions at the start, then every minute
+		assertEquals(11 * TASKS, executions.get());
+		assertEquals(nodes.length, unkeyed.get());
+		for (Scheduler scheduler : schedulers) {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testRebalanceWhenNodeLeaves() {
+		NodeRing ring = NodeRing.of(Arrays.asList("node-0", "node-1", "node-2"));
+		AtomicInteger executions = new AtomicInteger();
+		Scheduler[] schedulers = new Scheduler[3];
+		Simulation[] nodes = new Simulation[3];
+		for (int i = 0; i < nodes.length; i++) {
+			schedulers[i] = new Scheduler().usePartitioning("node-" + i, ring, key -> executions::incrementAndGet);
+			nodes[i] = schedulers[i].simulate(START, BERLIN);
+			for (int task = 0; task < TASKS; task++) {
+				schedulers[i].every().minute().key("task-" + task).run(executions::incrementAndGet);
+			}
+		}
+		for (Simulation node : nodes) {
+			node.advanceTo(START.plus(Duration.ofMinutes(5)));
+		}
+		assertEquals(6 * TASKS, executions.get());
+
+		// node-2 leaves, the remaining nodes take over its tasks without catching up on past executions
+		schedulers[2].shutdown();
+		NodeRing remaining = NodeRing.of(Arrays.asList("node-0", "node-1"));
+		int before = schedulers[0].size();
+		schedulers[0].usePartitioning("node-0", remaining, key -> executions::incrementAndGet);
+		schedulers[1].usePartitioning("node-1", remaining, key -> executions::incrementAndGet);
+		assertTrue(schedulers[0].size() > before);
+		assertEquals(TASKS, schedulers[0].size() + schedulers[1].size());
+
+		for (int i = 0; i < 2; i++) {
+			nodes[i].advanceTo(START.plus(Duration.ofMinutes(10)));
+		}
+		assertEquals(11 * TASKS, executions.get());
+
+		// without partitioning, a node runs all tasks again
+		schedulers[0].usePartitioning(null, null, key -> executions::incrementAndGet);
+		assertEquals(TASKS, schedulers[0].size());
+		for (int i = 0; i < 2; i++) {
+			schedulers[i].shutdown();
+		}
+	}
+
+	@Test
+	public void testSameKeyReplacesTask() {
+		NodeRing ring = NodeRing.of(Arrays.asList("node-0", "node-1"));
+		String owner = ring.owner("task");
+		String other = owner.equals("node-0") ? "node-1" : "node-0";
+		AtomicInteger first = new AtomicInteger();
+		AtomicInteger second = new AtomicInteger();
+		Scheduler scheduler = new Scheduler().usePartitioning(owner, ring, key -> second::incrementAndGet);
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		Schedule replaced = scheduler.every().minute().key("task").run(first::incrementAndGet);
+		scheduler.every().minute().key("task").run(second::incrementAndGet);
+		simulation.advanceBy(Duration.ofMinutes(2));
+		assertEquals(1, scheduler.size());
+		assertEquals(0, first.get());
+		assertEquals(3, second.get());
+		assertFalse(replaced._alive);
+
+		// handed over and taken over again, the replaced task stays cancelled
+		scheduler.usePartitioning(owner, NodeRing.of(Collections.singletonList(other)), key -> second::incrementAndGet);
+		assertEquals(0, scheduler.size());
+		scheduler.usePartitioning(owner, ring, key -> second::incrementAndGet);
+		simulation.advanceBy(Duration.ofMinutes(2));
+		assertEquals(1, scheduler.size());
+		assertEquals(0, first.get());
+		assertEquals(5, second.get());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testTasksOfOtherNodesAreNotKept() {
+		NodeRing ring = NodeRing.of(Collections.singletonList("node-1"));
+		Scheduler scheduler = new Scheduler().usePartitioning("node-0", ring, key -> NOTHING);
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		AtomicInteger executions = new AtomicInteger();
+		Runnable runnable = executions::incrementAndGet;
+		WeakReference<Runnable> reference = new WeakReference<>(runnable);
+		Schedule schedule = scheduler.every().minute().key("task").run(runnable);
+		simulation.advanceBy(Duration.ofMinutes(1));
+		assertEquals(0, scheduler.size());
+		runnable = null;
+		schedule = null;
+		for (int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+		}
+		assertNull(reference.get());
+
+		// rebuilt by its key when taken over
+		scheduler.usePartitioning("node-0", NodeRing.of(Collections.singletonList("node-0")),
+				key -> executions::incrementAndGet);
+		simulation.advanceBy(Duration.ofMinutes(2));
+		assertEquals(1, scheduler.size());
+		assertEquals(2, executions.get());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testTaskTakenOverIsCancelledByItsOriginal() {
+		NodeRing ring = NodeRing.of(Collections.singletonList("node-1"));
+		Scheduler scheduler = new Scheduler().usePartitioning("node-0", ring, key -> NOTHING);
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		Schedule schedule = scheduler.every().minute().key("task").run(NOTHING);
+		simulation.advanceBy(Duration.ofMinutes(1));
+		scheduler.usePartitioning("node-0", NodeRing.of(Collections.singletonList("node-0")), key -> NOTHING);
+		assertEquals(1, scheduler.size());
+		schedule.cancel();
+		simulation.advanceBy(Duration.ofMinutes(1));
+		assertEquals(0, scheduler.size());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testSnapshotIncludesTasksOfOtherNodes() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("partitioned.snapshot");
+		NodeRing ring = NodeRing.of(Arrays.asList("node-0", "node-1", "node-2"));
+		Scheduler first = new Scheduler().usePartitioning("node-0", ring, key -> NOTHING);
+		Simulation simulation = first.simulate(START, BERLIN);
+		for (int task = 0; task < TASKS; task++) {
+			first.every().minute().key("task-" + task).run(NOTHING);
+		}
+		simulation.advanceBy(Duration.ofMinutes(1));
+		assertTrue(first.size() < TASKS);
+		first.snapshot(file);
+		first.shutdown();
+
+		Scheduler second = new Scheduler();
+		assertEquals(TASKS, second.restore(file, key -> NOTHING).size());
+		second.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void testRepartitionWhileDispatching() throws InterruptedException {
+		NodeRing ring = NodeRing.of(Arrays.asList("node-0", "node-1"));
+		for (int i = 0; i < 200; i++) {
+			Scheduler scheduler = new Scheduler();
+			CountDownLatch executed = new CountDownLatch(1);
+			// the first execution creates the executor while the ring is changed
+			scheduler.every().minute().key("task").run(executed::countDown);
+			scheduler.usePartitioning(ring.owner("task"), ring, key -> NOTHING);
+			assertTrue(executed.await(5, TimeUnit.SECONDS));
+			scheduler.shutdown();
+		}
+	}
+}
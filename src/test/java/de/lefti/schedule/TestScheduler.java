@@ -0,0 +1,253 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on independent scheduler instances.
+ */
+public class TestScheduler {
+
+	@Test
+	public void testSchedulersRunInTheirOwnThreads() throws InterruptedException {
+		Scheduler billing = new Scheduler("Billing");
+		Scheduler reporting = new Scheduler("Reporting").useEngine(Engine.TIMING_WHEEL);
+		AtomicReference<String> billingThread = new AtomicReference<>();
+		AtomicReference<String> reportingThread = new AtomicReference<>();
+		CountDownLatch latch = new CountDownLatch(2);
+
+		billing.every().second().run(() -> {
+			billingThread.set(Thread.currentThread().getName());
+			latch.countDown();
+		});
+		reporting.every().second().run(() -> {
+			reportingThread.set(Thread.currentThread().getName());
+			latch.countDown();
+		});
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(billingThread.get().startsWith("Billing-Worker-"));
+		assertTrue(reportingThread.get().startsWith("Reporting-Worker-"));
+		billing.shutdown();
+		reporting.shutdown();
+	}
+
+	@Test
+	public void testShutdownOnlyAffectsOneScheduler() throws InterruptedException {
+		Scheduler first = new Scheduler();
+		Scheduler second = new Scheduler();
+		AtomicInteger firstRuns = new AtomicInteger();
+		CountDownLatch secondRuns = new CountDownLatch(2);
+
+		first.every().second().run(firstRuns::incrementAndGet);
+		second.every().second().run(secondRuns::countDown);
+		first.shutdown();
+		// an execution dispatched right before the shutdown may still be running
+		Thread.sleep(100);
+		int runsBeforeShutdown = firstRuns.get();
+
+		assertTrue(secondRuns.await(5, TimeUnit.SECONDS));
+		assertEquals(runsBeforeShutdown, firstRuns.get());
+		second.shutdown();
+	}
+
+	@Test
+	public void testRestartAfterShutdown() throws InterruptedException {
+		Scheduler scheduler = new Scheduler();
+		scheduler.every().second().run(() -> { });
+		scheduler.shutdown();
+
+		CountDownLatch latch = new CountDownLatch(1);
+		scheduler.every().second().run(latch::countDown);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testRunAllSchedulesEveryTask() throws InterruptedException {
+		Scheduler scheduler = new Scheduler();
+		List<Schedule> schedules = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			schedules.add(scheduler.every().day().at("08:00").task(() -> { }));
+		}
+		scheduler.runAll(schedules);
+		assertEquals(1000, scheduler.size());
+		schedules.get(0).cancel();
+		assertTrue(awaitSize(scheduler, 999));
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testCancellationWakesUpDispatcher() throws InterruptedException {
+		Scheduler scheduler = new Scheduler();
+		scheduler.every().day().at("08:00").run(() -> { });
+		for (int i = 0; i < 1000; i++) {
+			Schedule cancelled = scheduler.every().day().at("08:00").run(() -> { });
+			// the due task wakes up the dispatcher, the cancellation may arrive while it is still awake
+			scheduler.once().run(() -> { });
+			cancelled.cancel();
+			assertTrue("cancellation " + i + " not picked up", awaitSize(scheduler, 1));
+		}
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Waits for the dispatcher to pick up cancelled tasks. It sleeps until 08:00 otherwise, so waiting for a second
+	 * fails unless it has been woken up.
+	 */
+	private static boolean awaitSize(Scheduler scheduler, int size) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (scheduler.size() != size) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	@Test(expected = ScheduleException.class)
+	public void testRunAllRejectsForeignSchedules() {
+		new Scheduler().runAll(List.of(Schedule.every().second().task(() -> { })));
+	}
+
+	@Test
+	public void testRejectionsAreReportedOnce() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		// rejects all executions
+		executor.shutdown();
+		Scheduler scheduler = new Scheduler("Rejecting").useExecutor(executor);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream err = System.err;
+		System.setErr(new PrintStream(output, true));
+		try {
+			List<Schedule> schedules = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				schedules.add(scheduler.every().second().task(() -> {
+				}));
+			}
+			scheduler.runAll(schedules);
+			Thread.sleep(1500);
+		} finally {
+			System.setErr(err);
+			scheduler.shutdown();
+		}
+		String report = output.toString();
+		assertEquals(report.indexOf("executions rejected"), report.lastIndexOf("executions rejected"));
+		assertTrue(report.contains("Rejecting: executions rejected by the executor so far: 1"));
+	}
+
+	@Test
+	public void testFailingExecutorDoesNotStopTheDispatcher() throws InterruptedException {
+		ExecutorService delegate = Executors.newSingleThreadExecutor();
+		AtomicInteger handedOver = new AtomicInteger();
+		ExecutorService executor = new AbstractExecutorService() {
+			@Override
+			public void execute(Runnable command) {
+				if (handedOver.incrementAndGet() == 1) {
+					throw new IllegalStateException("not ready yet");
+				}
+				delegate.execute(command);
+			}
+
+			@Override
+			public void shutdown() {
+				delegate.shutdown();
+			}
+
+			@Override
+			public List<Runnable> shutdownNow() {
+				return delegate.shutdownNow();
+			}
+
+			@Override
+			public boolean isShutdown() {
+				return delegate.isShutdown();
+			}
+
+			@Override
+			public boolean isTerminated() {
+				return delegate.isTerminated();
+			}
+
+			@Override
+			public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+				return delegate.awaitTermination(timeout, unit);
+			}
+		};
+		Scheduler scheduler = new Scheduler().useExecutor(executor);
+		CountDownLatch latch = new CountDownLatch(1);
+		scheduler.every().second().run(latch::countDown);
+		try {
+			assertTrue(latch.await(3, TimeUnit.SECONDS));
+		} finally {
+			scheduler.shutdown();
+			delegate.shutdown();
+		}
+	}
+
+	@Test
+	public void testTaskWithoutNextExecutionDoesNotStopTheDispatcher() throws InterruptedException {
+		Scheduler scheduler = new Scheduler();
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(2);
+		// the execution after the first one lies beyond the supported years
+		Schedule broken = scheduler.every(Integer.MAX_VALUE).years().run(executions::incrementAndGet);
+		scheduler.every().second().run(latch::countDown);
+		try {
+			assertTrue(latch.await(3, TimeUnit.SECONDS));
+			assertEquals(1, executions.get());
+			assertFalse(broken._alive);
+			assertEquals(1, scheduler.size());
+		} finally {
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testVirtualThreads() throws InterruptedException {
+		Scheduler scheduler = new Scheduler("Virtual");
+		boolean virtual = scheduler.useVirtualThreads();
+		// only the versioned classes of the jar support virtual threads, running on Java 21 or newer
+		assertEquals(VirtualThreads.isSupported(), virtual);
+		if (Runtime.version().feature() < 21) {
+			assertFalse(virtual);
+		}
+		AtomicReference<Thread> thread = new AtomicReference<>();
+		CountDownLatch latch = new CountDownLatch(1);
+		scheduler.every().second().run(() -> {
+			thread.set(Thread.currentThread());
+			latch.countDown();
+		});
+
+		// tasks run either way
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(thread.get().getName().startsWith("Virtual-Worker-"));
+		assertEquals(virtual, isVirtual(thread.get()));
+		scheduler.shutdown();
+	}
+
+	private static boolean isVirtual(Thread thread) {
+		try {
+			return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (ReflectiveOperationException e) {
+			// before Java 21
+			return false;
+		}
+	}
+}
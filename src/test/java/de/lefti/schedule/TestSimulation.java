@@ -0,0 +1,104 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This test class focuses on simulating schedulers in virtual time.
+ */
+public class TestSimulation {
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	private static final Instant START = ZonedDateTime.of(2024, 1, 15, 12, 0, 0, 0, BERLIN).toInstant();
+
+	@Test
+	public void testMonthlyTaskForTenYears() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		List<ZonedDateTime> executions = new ArrayList<>();
+		scheduler.every().month().at("-01 06:30").run(() -> executions.add(simulation.now().atZone(BERLIN)));
+
+		assertEquals(120, simulation.advanceBy(Duration.ofDays(3653)));
+		assertEquals(120, executions.size());
+		ZonedDateTime expected = ZonedDateTime.of(2024, 2, 1, 6, 30, 0, 0, BERLIN);
+		for (ZonedDateTime execution : executions) {
+			assertEquals(expected, execution);
+			expected = expected.plusMonths(1);
+		}
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testDailyTaskAcrossDaylightSavingTime() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		List<ZonedDateTime> executions = new ArrayList<>();
+		scheduler.every().day().at("08:00").run(() -> executions.add(simulation.now().atZone(BERLIN)));
+
+		simulation.advanceTo(ZonedDateTime.of(2025, 1, 15, 12, 0, 0, 0, BERLIN).toInstant());
+		assertEquals(366, executions.size());
+		for (ZonedDateTime execution : executions) {
+			assertEquals(8, execution.getHour());
+			assertEquals(0, execution.getMinute());
+		}
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testManyExecutions() {
+		for (Engine engine : Engine.values()) {
+			Scheduler scheduler = new Scheduler().useEngine(engine);
+			Simulation simulation = scheduler.simulate(START, BERLIN);
+			AtomicLong executions = new AtomicLong();
+			for (int i = 0; i < 10; i++) {
+				scheduler.every().second().run(executions::incrementAndGet);
+			}
+			// the tasks are first run at the start, the end is included
+			assertEquals(10 * 86_401, simulation.advanceBy(Duration.ofDays(1)));
+			assertEquals(10 * 86_401, executions.get());
+			assertEquals(START.plus(Duration.ofDays(1)), simulation.now());
+			scheduler.shutdown();
+		}
+	}
+
+	@Test
+	public void testRunNext() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		assertEquals(0, simulation.runNext());
+		assertEquals(START, simulation.now());
+
+		scheduler.once().day().at("18:00").run(() -> {
+		});
+		assertEquals(1, simulation.runNext());
+		assertEquals(ZonedDateTime.of(2024, 1, 15, 18, 0, 0, 0, BERLIN).toInstant(), simulation.now());
+		assertEquals(0, simulation.runNext());
+		assertEquals(0, scheduler.size());
+		assertEquals(1, simulation.executions());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testShutdownEndsSimulation() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		scheduler.shutdown();
+		try {
+			simulation.runNext();
+			fail("simulation should have ended");
+		} catch (ScheduleException e) {
+			assertTrue(scheduler.clock().millis() > START.toEpochMilli());
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package de.lefti.schedule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on snapshots of the tasks of a scheduler.
+ */
+public class TestSnapshot {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final Runnable NOTHING = () -> {
+	};
+
+	@Test
+	public void testTasksAreRestored() throws IOException {
+		for (Engine engine : Engine.values()) {
+			Path file = folder.getRoot().toPath().resolve(engine + ".snapshot");
+			Scheduler first = new Scheduler().useEngine(engine);
+			Schedule weekly = first.every().friday().at("17:30").key("weekly").onOverlap(OverlapPolicy.QUEUE, 2)
+					.run(NOTHING);
+			Schedule monthly = first.every(3).months().at("-15 08:00").key("monthly")
+					.onMisfire(MisfirePolicy.SKIP).spread(Duration.ofMinutes(1)).run(NOTHING);
+			first.every().day().at("04:00").run(NOTHING);
+			first.every().day().at("05:00").key("cancelled").run(NOTHING).cancel();
+			first.snapshot(file);
+			first.shutdown();
+
+			Scheduler second = new Scheduler().useEngine(engine);
+			Map<String, Schedule> restored = second.restore(file, key -> NOTHING);
+			assertEquals(2, restored.size());
+			assertEquals(2, second.size());
+			assertRestored(weekly, restored.get("weekly"));
+			assertRestored(monthly, restored.get("monthly"));
+			second.shutdown();
+		}
+	}
+
+	@Test
+	public void testManyTasks() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("many.snapshot");
+		Scheduler first = new Scheduler();
+		List<Schedule> schedules = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			schedules.add(first.every().day().at("03:00").key("task-" + i).task(NOTHING));
+		}
+		first.runAll(schedules);
+		first.snapshot(file);
+		first.shutdown();
+
+		Scheduler second = new Scheduler();
+		Map<String, Schedule> restored = second.restore(file, key -> key.endsWith("7") ? null : NOTHING);
+		assertEquals(90_000, restored.size());
+		assertEquals(90_000, second.size());
+		second.shutdown();
+	}
+
+	@Test
+	public void testEmptySnapshot() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("empty.snapshot");
+		new Scheduler().snapshot(file);
+		assertTrue(new Scheduler().restore(file, key -> NOTHING).isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherFilesAreRejected() throws IOException {
+		Path file = folder.getRoot().toPath().resolve("other");
+		Files.write(file, "no snapshot".getBytes());
+		new Scheduler().restore(file, key -> NOTHING);
+	}
+
+	private static void assertRestored(Schedule expected, Schedule actual) {
+		assertEquals(expected._nextExecution, actual._nextExecution);
+		assertEquals(expected.nextExecutionTimestamp(), actual.nextExecutionTimestamp());
+		assertEquals(expected._misfirePolicy, actual._misfirePolicy);
+		assertEquals(expected._overlapPolicy, actual._overlapPolicy);
+		assertEquals(expected.spreadOffset(), actual.spreadOffset());
+	}
+}
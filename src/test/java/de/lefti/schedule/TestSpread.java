@@ -0,0 +1,62 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on spreading executions across a window.
+ */
+public class TestSpread {
+
+	private final Scheduler scheduler = new Scheduler();
+
+	@Test
+	public void testOffsetIsStable() {
+		Schedule first = scheduler.every().hour().key("report").spread(Duration.ofMinutes(5));
+		Schedule second = scheduler.every().minute().key("report").spread(Duration.ofMinutes(5));
+		assertEquals(first.spreadOffset(), second.spreadOffset());
+		assertTrue(first.spreadOffset() < Duration.ofMinutes(5).toMillis());
+		assertEquals(0, scheduler.every().hour().key("report").spreadOffset());
+	}
+
+	@Test
+	public void testOffsetsAreEven() {
+		final int TASKS = 10_000;
+		final int BUCKETS = 10;
+		final long WINDOW = Duration.ofMinutes(1).toMillis();
+		int[] counts = new int[BUCKETS];
+		for (int i = 0; i < TASKS; i++) {
+			long offset = scheduler.every().minute().key("task-" + i).spread(Duration.ofMillis(WINDOW)).spreadOffset();
+			counts[(int) (offset * BUCKETS / WINDOW)]++;
+		}
+		for (int count : counts) {
+			assertTrue(Math.abs(count - TASKS / BUCKETS) < TASKS / BUCKETS / 10);
+		}
+	}
+
+	@Test
+	public void testNextExecutionIsShifted() {
+		Schedule task = scheduler.every().hour().at(":00").key("sync").spread(Duration.ofMinutes(10));
+		long offset = task.spreadOffset();
+		long next = task.nextExecutionTimestamp();
+		ZonedDateTime aligned = ZonedDateTime.ofInstant(Instant.ofEpochMilli(next - offset), ZoneId.systemDefault());
+		assertEquals(0, aligned.getMinute());
+		assertEquals(0, aligned.getSecond());
+
+		task._nextExecution = next;
+		assertEquals(next + Duration.ofHours(1).toMillis(), task.nextExecutionTimestamp());
+	}
+
+	@Test(expected = ScheduleException.class)
+	public void testSpreadRequiresKey() {
+		scheduler.every().minute().spread(Duration.ofSeconds(30)).run(() -> {
+		});
+	}
+}
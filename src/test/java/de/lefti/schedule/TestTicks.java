@@ -0,0 +1,166 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on publishing the executions of tasks to reactive subscribers.
+ */
+public class TestTicks {
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	private static final Instant START = Instant.parse("2024-01-15T12:00:00Z");
+
+	@Test
+	public void testDemandIsHonoured() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		TickPublisher publisher = new TickPublisher(BackpressurePolicy.DROP);
+		Collector subscriber = new Collector(3);
+		publisher.subscribe(subscriber);
+		scheduler.every().second().key("ticker").publish(publisher);
+
+		long executions = simulation.advanceBy(Duration.ofSeconds(10));
+		assertEquals(3, subscriber._ticks.size());
+		assertEquals(executions - 3, publisher.getDropped());
+		for (int i = 0; i < 3; i++) {
+			Tick tick = subscriber._ticks.get(i);
+			assertEquals("ticker", tick.getKey());
+			assertEquals(START.plusSeconds(i).toEpochMilli(), tick.getPlannedTimestamp());
+			assertEquals(tick.getPlannedTimestamp(), tick.getActualTimestamp());
+		}
+
+		// ticks published from now on are delivered again
+		subscriber._subscription.request(1);
+		assertEquals(3, subscriber._ticks.size());
+		simulation.advanceBy(Duration.ofSeconds(1));
+		assertEquals(4, subscriber._ticks.size());
+		assertEquals(START.plusSeconds(11).toEpochMilli(), subscriber._ticks.get(3).getPlannedTimestamp());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testLatestTickIsConflated() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		TickPublisher publisher = new TickPublisher(BackpressurePolicy.CONFLATE);
+		Collector subscriber = new Collector(0);
+		publisher.subscribe(subscriber);
+		scheduler.every().second().publish(publisher);
+
+		simulation.advanceBy(Duration.ofSeconds(5));
+		assertTrue(subscriber._ticks.isEmpty());
+		subscriber._subscription.request(2);
+		assertEquals(1, subscriber._ticks.size());
+		assertEquals(START.plusSeconds(5).toEpochMilli(), subscriber._ticks.get(0).getPlannedTimestamp());
+		assertEquals(5, publisher.getDropped());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testGroupOfSchedules() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		TickPublisher publisher = new TickPublisher();
+		Collector subscriber = new Collector(Long.MAX_VALUE);
+		publisher.subscribe(subscriber);
+		scheduler.every().minute().at(":00").key("minutely").publish(publisher);
+		scheduler.every(15).seconds().key("quarterly").publish(publisher);
+
+		simulation.advanceBy(Duration.ofMinutes(2));
+		// 12:00 to 12:02 every 15 seconds, 12:01 and 12:02 every minute
+		assertEquals(9 + 2, subscriber._ticks.size());
+		for (int i = 1; i < subscriber._ticks.size(); i++) {
+			assertTrue(subscriber._ticks.get(i - 1).getPlannedTimestamp()
+					<= subscriber._ticks.get(i).getPlannedTimestamp());
+		}
+		assertEquals(2, subscriber._ticks.stream().filter(tick -> tick.getKey().equals("minutely")).count());
+
+		publisher.close();
+		assertTrue(subscriber._completed);
+		assertEquals(0, publisher.getSubscribers());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testTicksAreDeliveredByScheduler() throws InterruptedException {
+		Scheduler scheduler = new Scheduler("Ticking");
+		TickPublisher publisher = new TickPublisher();
+		List<String> threads = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(2);
+		publisher.subscribe(new Collector(Long.MAX_VALUE) {
+			@Override
+			public void onNext(Tick item) {
+				threads.add(Thread.currentThread().getName());
+				latch.countDown();
+			}
+		});
+		scheduler.every().second().publish(publisher);
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} finally {
+			scheduler.shutdown();
+		}
+		// no worker is started for a tick
+		for (String thread : threads) {
+			assertEquals("Ticking", thread);
+		}
+	}
+
+	@Test
+	public void testInvalidRequest() {
+		TickPublisher publisher = new TickPublisher();
+		Collector subscriber = new Collector(0);
+		publisher.subscribe(subscriber);
+		subscriber._subscription.request(0);
+		assertTrue(subscriber._error instanceof IllegalArgumentException);
+		assertEquals(0, publisher.getSubscribers());
+	}
+
+	private static class Collector implements Flow.Subscriber<Tick> {
+		private final long _initialRequest;
+		private final List<Tick> _ticks = new ArrayList<>();
+		private Flow.Subscription _subscription;
+		private Throwable _error;
+		private boolean _completed;
+
+		private Collector(long initialRequest) {
+			_initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			_subscription = subscription;
+			if (_initialRequest > 0) {
+				subscription.request(_initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(Tick item) {
+			_ticks.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			_error = throwable;
+		}
+
+		@Override
+		public void onComplete() {
+			_completed = true;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class compares the timestamp parser with the regular expressions it replaced.
+ */
+public class TestTimeSpec {
+
+	private static final String[] NAMES = {"minute", "hour", "day", "week", "month", "year"};
+	private static final String[] REGEX = {
+			"^:[0-5]\\d$",
+			"^([0-5]\\d)?:[0-5]\\d$",
+			"^([0-2]\\d:)?[0-5]\\d:[0-5]\\d$",
+			"^([0-2]\\d:)?[0-5]\\d:[0-5]\\d$",
+			"^(-[0-3]\\d)((\\s[0-2]\\d):([0-5]\\d)(:[0-5]\\d)?)?$",
+			"^([0-1]\\d)?(-[0-3]\\d)((\\s[0-2]\\d):([0-5]\\d)(:[0-5]\\d)?)?$"
+	};
+	private static final List<Supplier<Schedule>> SCHEDULES = List.of(
+			() -> Schedule.every().minute(), () -> Schedule.every().hour(), () -> Schedule.every().day(),
+			() -> Schedule.every().monday(), () -> Schedule.every().month(), () -> Schedule.every().year());
+	private static final String[] TARGETS = {"_targetMonth", "_targetDay", "_targetHour", "_targetMinute", "_targetSecond"};
+
+	@Test
+	public void testSameFormatsAsRegularExpressions() throws ReflectiveOperationException {
+		List<String> timestamps = new ArrayList<>(List.of(":00", ":59", ":60", "59:59", "29:59:59", "30:00:00",
+				"25:90", "00:30", "-01", "-39", "-40", "12-31", "19-01", "20-01", "-05 09:00", "11-01 08:00",
+				"-05\t09:00:30", "01-05 29:59:59", "01-05 30:00", "", ":", "-", "1:00", "01:00:", "-01 ", "-1"));
+		Random random = new Random(1);
+		String alphabet = "0123456789:- \t";
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder timestamp = new StringBuilder();
+			int length = random.nextInt(15);
+			for (int c = 0; c < length; c++) {
+				timestamp.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			timestamps.add(timestamp.toString());
+		}
+
+		for (String timestamp : timestamps) {
+			for (int unit = 0; unit < NAMES.length; unit++) {
+				boolean expected = timestamp.matches(REGEX[unit]);
+				Schedule schedule = SCHEDULES.get(unit).get();
+				try {
+					schedule.at(timestamp);
+				} catch (TimeFormatException e) {
+					assertFalse(NAMES[unit] + " \"" + timestamp + "\"", expected);
+					continue;
+				}
+				assertTrue(NAMES[unit] + " \"" + timestamp + "\"", expected);
+				assertArrayEquals(NAMES[unit] + " \"" + timestamp + "\"", legacyTargets(unit, timestamp), targets(schedule));
+			}
+		}
+	}
+
+	@Test
+	public void testSharedTimeSpec() throws ReflectiveOperationException {
+		TimeSpec time = TimeSpec.parse("08:30");
+		Schedule first = Schedule.every().day().at(time);
+		Schedule second = Schedule.every().friday().at(time);
+		assertArrayEquals(targets(first), targets(second));
+		assertArrayEquals(new int[]{1, 1, 8, 30, 0}, targets(first));
+		assertEquals("08:30", time.toString());
+		assertSame(TimeSpec.Format.PAIR, time._format);
+	}
+
+	@Test(expected = TimeFormatException.class)
+	public void testSpecNotFittingUnit() {
+		Schedule.every().minute().at(TimeSpec.parse("08:30"));
+	}
+
+	@Test(expected = ScheduleException.class)
+	public void testInvalidUnitBeforeInvalidFormat() {
+		Schedule.every().second().at("nonsense");
+	}
+
+	private static int[] targets(Schedule schedule) throws ReflectiveOperationException {
+		int[] targets = new int[TARGETS.length];
+		for (int i = 0; i < TARGETS.length; i++) {
+			Field field = Schedule.class.getDeclaredField(TARGETS[i]);
+			field.setAccessible(true);
+			targets[i] = field.getInt(schedule);
+		}
+		return targets;
+	}
+
+	/**
+	 * The way the fields have been set before introducing the parser.
+	 */
+	private static int[] legacyTargets(int unit, String timestamp) {
+		int[] targets = {1, 1, 0, 0, 0};
+		String[] values = timestamp.split(":|\\s|-");
+		if (values.length == 5 || values.length == 4) {
+			if (!values[0].isEmpty()) {
+				targets[0] = Integer.parseInt(values[0]);
+			}
+			for (int i = 1; i < values.length; i++) {
+				targets[i] = Integer.parseInt(values[i]);
+			}
+		} else if (values.length == 3) {
+			targets[2] = Integer.parseInt(values[0]);
+			targets[3] = Integer.parseInt(values[1]);
+			targets[4] = Integer.parseInt(values[2]);
+		} else if (unit == 0) {
+			targets[4] = Integer.parseInt(values[1]);
+		} else if (unit == 1) {
+			if (values[0].isEmpty()) {
+				targets[3] = Integer.parseInt(values[1]);
+			} else {
+				targets[3] = Integer.parseInt(values[0]);
+				targets[4] = Integer.parseInt(values[1]);
+			}
+		} else if (unit == 2 || unit == 3) {
+			targets[2] = Integer.parseInt(values[0]);
+			targets[3] = Integer.parseInt(values[1]);
+		} else {
+			if (!values[0].isEmpty()) {
+				targets[0] = Integer.parseInt(values[0]);
+			}
+			targets[1] = Integer.parseInt(values[1]);
+		}
+		return targets;
+	}
+}
@@ -0,0 +1,169 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on the timing wheel engine by driving it with simulated timestamps.
+ */
+public class TestTimingWheel {
+
+	// not aligned to any tick on purpose
+	private static final long NOW = Instant.parse("2024-01-15T12:34:56.789Z").toEpochMilli();
+
+	private Schedule task(long nextExecution) {
+		Schedule task = Schedule.every().second();
+		task._nextExecution = nextExecution;
+		return task;
+	}
+
+	@Test
+	public void testTasksAreDueExactlyAtTheirDeadline() {
+		long now = NOW;
+		TaskQueue queue = new TimingWheelTaskQueue(now);
+		long[] offsets = {
+				5,
+				Duration.ofMillis(1500).toMillis(),
+				Duration.ofMinutes(2).plusMillis(7).toMillis(),
+				Duration.ofHours(3).plusSeconds(5).toMillis(),
+				Duration.ofDays(2).plusMinutes(1).toMillis(),
+				Duration.ofDays(365 * 3).toMillis()
+		};
+		for (long offset : offsets) {
+			queue.add(task(now + offset));
+		}
+		assertEquals(offsets.length, queue.size());
+
+		List<Schedule> due = new ArrayList<>();
+		int polled = 0;
+		while (queue.size() > 0) {
+			long deadline = queue.nextDeadline();
+			assertTrue(deadline <= now + offsets[polled]);
+			queue.pollDue(deadline, due);
+			for (Schedule task : due) {
+				assertEquals(now + offsets[polled], task._nextExecution);
+				assertEquals(task._nextExecution, deadline);
+				polled++;
+			}
+			due.clear();
+		}
+		assertEquals(offsets.length, polled);
+		assertEquals(Long.MAX_VALUE, queue.nextDeadline());
+	}
+
+	@Test
+	public void testPastTasksAreDueImmediately() {
+		long now = NOW;
+		TaskQueue queue = new TimingWheelTaskQueue(now);
+		queue.add(task(now - 1000));
+
+		List<Schedule> due = new ArrayList<>();
+		assertTrue(queue.nextDeadline() <= now);
+		queue.pollDue(now, due);
+		assertEquals(1, due.size());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testRemovedTasksAreNotDue() {
+		long now = NOW;
+		TaskQueue queue = new TimingWheelTaskQueue(now);
+		Schedule removed = task(now + Duration.ofMinutes(5).toMillis());
+		queue.add(removed);
+		queue.add(task(now + Duration.ofMinutes(10).toMillis()));
+		assertTrue(queue.remove(removed));
+		assertFalse(queue.remove(removed));
+		assertEquals(1, queue.size());
+
+		List<Schedule> due = new ArrayList<>();
+		queue.pollDue(now + Duration.ofMinutes(6).toMillis(), due);
+		assertEquals(0, due.size());
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testTasksBeyondTheOverflowRevolution() {
+		long now = NOW;
+		TaskQueue queue = new TimingWheelTaskQueue(now);
+		long deadline = now + Duration.ofDays(5 * 365).toMillis();
+		queue.add(task(deadline));
+
+		List<Schedule> due = new ArrayList<>();
+		queue.pollDue(now + Duration.ofDays(1100).toMillis(), due);
+		assertEquals(0, due.size());
+		assertEquals(1, queue.size());
+		while (due.isEmpty()) {
+			long next = queue.nextDeadline();
+			assertTrue(next <= deadline);
+			queue.pollDue(next, due);
+		}
+		assertEquals(deadline, due.get(0)._nextExecution);
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testEarliestTaskOfAnUncascadedSlot() {
+		TaskQueue queue = new TimingWheelTaskQueue(NOW);
+		long day = Duration.ofDays(1).toMillis();
+		long midnight = (NOW / day + 1) * day;
+		long early = midnight + Duration.ofMinutes(10).toMillis();
+		queue.add(task(early));
+
+		List<Schedule> due = new ArrayList<>();
+		queue.pollDue(midnight - 1, due);
+		queue.add(task(midnight + Duration.ofMinutes(40).toMillis()));
+		assertEquals(early, queue.nextDeadline());
+	}
+
+	@Test
+	public void testSameAsHeap() {
+		Random random = new Random(1);
+		long[] scales = {10, 1000, 60_000, 3_600_000, 86_400_000, Duration.ofDays(2000).toMillis()};
+		long now = NOW;
+		TaskQueue wheel = new TimingWheelTaskQueue(now);
+		TaskQueue heap = new HeapTaskQueue();
+		List<Schedule> tasks = new ArrayList<>();
+		List<Schedule> wheelDue = new ArrayList<>();
+		List<Schedule> heapDue = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			int action = random.nextInt(4);
+			if (action == 0 || tasks.isEmpty()) {
+				Schedule task = task(now + (long) (random.nextDouble() * scales[random.nextInt(scales.length)]));
+				tasks.add(task);
+				wheel.add(task);
+				heap.add(task);
+			} else if (action == 1) {
+				Schedule task = tasks.remove(random.nextInt(tasks.size()));
+				assertTrue(wheel.remove(task));
+				assertTrue(heap.remove(task));
+			} else {
+				long deadline = heap.nextDeadline();
+				if (deadline == Long.MAX_VALUE) {
+					continue;
+				}
+				// stop right before the boundaries of the coarse wheels, too
+				long span = scales[1 + random.nextInt(scales.length - 2)];
+				long[] targets = {deadline, deadline - 1, (now / span + 1) * span - 1, wheel.nextDeadline()};
+				now = Math.max(now, targets[random.nextInt(targets.length)]);
+				wheel.pollDue(now, wheelDue);
+				heap.pollDue(now, heapDue);
+				assertEquals(new HashSet<>(heapDue), new HashSet<>(wheelDue));
+				tasks.removeAll(heapDue);
+				wheelDue.clear();
+				heapDue.clear();
+			}
+			assertEquals(heap.size(), wheel.size());
+			assertTrue(wheel.nextDeadline() <= heap.nextDeadline());
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package de.lefti.schedule;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test class focuses on previewing the upcoming executions of tasks.
+ */
+public class TestUpcoming {
+
+	private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+	private static final Instant START = ZonedDateTime.of(2024, 1, 15, 12, 0, 0, 0, BERLIN).toInstant();
+	private static final Runnable NOTHING = () -> {
+	};
+
+	@Test
+	public void testPreviewDoesNotChangeTask() {
+		Scheduler scheduler = new Scheduler();
+		scheduler.simulate(START, BERLIN);
+		Schedule schedule = scheduler.every(10).minutes().run(NOTHING);
+		long next = schedule._nextExecution;
+
+		long[] upcoming = schedule.upcoming().limit(3).toArray();
+		long step = Duration.ofMinutes(10).toMillis();
+		assertArrayEquals(new long[]{next, next + step, next + 2 * step}, upcoming);
+		assertEquals(next, schedule._nextExecution);
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testPreviewMatchesExecutions() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		List<Long> executions = new ArrayList<>();
+		Schedule schedule = scheduler.cron("0 */15 8-17 * * MON-FRI")
+				.run(() -> executions.add(simulation.now().toEpochMilli()));
+		// not scheduled yet
+		Schedule daily = scheduler.every().day().at("08:00").task(NOTHING);
+
+		List<Long> preview = schedule.upcoming().limit(500).boxed().collect(Collectors.toList());
+		assertEquals(ZonedDateTime.of(2024, 1, 16, 8, 0, 0, 0, BERLIN).toInstant().toEpochMilli(),
+				daily.upcoming().findFirst().getAsLong());
+		simulation.advanceTo(Instant.ofEpochMilli(preview.get(499)));
+		assertEquals(preview, executions);
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testOnceTask() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		Schedule schedule = scheduler.once().at("01-15 18:00").run(NOTHING);
+		assertEquals(1, schedule.upcoming().count());
+		simulation.advanceBy(Duration.ofDays(1));
+		assertEquals(0, schedule.upcoming().count());
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testForecastOfAllTasks() {
+		Scheduler scheduler = new Scheduler();
+		Simulation simulation = scheduler.simulate(START, BERLIN);
+		Schedule hourly = scheduler.every().hour().at(":30").run(NOTHING);
+		Schedule quarterly = scheduler.every(15).minutes().run(NOTHING);
+		scheduler.once().at("01-15 12:40").run(NOTHING);
+		scheduler.every().day().at("08:00").run(NOTHING).cancel();
+
+		long end = START.plus(Duration.ofHours(2)).toEpochMilli();
+		List<UpcomingExecution> forecast = scheduler.upcoming()
+				.takeWhile(execution -> execution.getTimestamp() < end).collect(Collectors.toList());
+		// 12:30 and 13:30, 12:00 to 13:45, 12:40
+		assertEquals(2 + 8 + 1, forecast.size());
+		for (int i = 1; i < forecast.size(); i++) {
+			assertTrue(forecast.get(i - 1).getTimestamp() <= forecast.get(i).getTimestamp());
+		}
+		assertEquals(2, forecast.stream().filter(execution -> execution.getSchedule() == hourly).count());
+		assertEquals(8, forecast.stream().filter(execution -> execution.getSchedule() == quarterly).count());
+
+		// the forecast starts with the next executions
+		simulation.advanceBy(Duration.ofHours(1));
+		assertEquals(START.plus(Duration.ofMinutes(75)).toEpochMilli(), scheduler.upcoming().findFirst().get()
+				.getTimestamp());
+		scheduler.shutdown();
+	}
+}